@@ -0,0 +1,60 @@
+package com.cantwellcode.cantwellgraphs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Laying out every bar of a bar series, grouped and stacked, and finding the range they reach
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BarLayoutBenchmark {
+
+    @Param({"1", "4"})
+    public int seriesCount;
+
+    @Param({"100", "10000"})
+    public int categoryCount;
+
+    @Param({"GROUPED", "STACKED"})
+    public BarMode mode;
+
+    private float[] mValues;
+    private float[] mRects;
+    private final float[] mRange = new float[2];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(13);
+        mValues = new float[seriesCount * categoryCount];
+        for (int i = 0; i < mValues.length; i++) {
+            mValues[i] = random.nextFloat() * 100;
+        }
+        mRects = new float[4 * mValues.length];
+    }
+
+    @Benchmark
+    public float layoutSeries() {
+        BarLayout.layoutSeries(mValues, seriesCount, categoryCount, mode, BenchmarkData.WIDTH, BenchmarkData.HEIGHT,
+                0, 0, 100 * seriesCount, true, false, mRects);
+        return mRects[mRects.length - 1];
+    }
+
+    @Benchmark
+    public float findSeriesRange() {
+        BarLayout.findSeriesRange(mValues, seriesCount, categoryCount, mode, mRange);
+        return mRange[1];
+    }
+}
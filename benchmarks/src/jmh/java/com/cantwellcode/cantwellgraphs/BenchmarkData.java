@@ -0,0 +1,59 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.util.Random;
+
+/**
+ * Series shared by the benchmarks, generated from a fixed seed so that every run measures the same data
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class BenchmarkData {
+
+    static final int WIDTH = 1080;              // pixels, a typical phone held in portrait
+    static final int HEIGHT = 720;
+    static final int VIEWPORT_SIZE = 10000;     // values visible at once when a large series is zoomed in
+
+    private BenchmarkData() {}
+
+    /**
+     * A random walk, so that the min and max move around like real data
+     * @param size
+     * @param hasXValues - if true the x values are ascending with uneven gaps
+     * @return
+     */
+    static FloatSeries createSeries(int size, boolean hasXValues) {
+        Random random = new Random(42);
+        float[] values = new float[size];
+        float value = 0;
+        for (int i = 0; i < size; i++) {
+            value += (float) random.nextGaussian();
+            values[i] = value;
+        }
+        if (!hasXValues) {
+            return new FloatSeries(values);
+        }
+
+        float[] xValues = new float[size];
+        float x = 0;
+        for (int i = 0; i < size; i++) {
+            x += 0.5f + random.nextFloat();
+            xValues[i] = x;
+        }
+        return new FloatSeries(xValues, values);
+    }
+
+    /**
+     * Project every value of the series to pixels across the width and height
+     */
+    static void project(FloatSeries series, float[] x, float[] y) {
+        int size = series.size();
+        float min = series.getMin(0, size);
+        float max = series.getMax(0, size);
+        float xScale = WIDTH / Math.max(1f, series.getX(size - 1) - series.getX(0));
+        float yScale = HEIGHT / Math.max(Float.MIN_VALUE, max - min);
+        for (int i = 0; i < size; i++) {
+            x[i] = (series.getX(i) - series.getX(0)) * xScale;
+            y[i] = HEIGHT - (series.get(i) - min) * yScale;
+        }
+    }
+}
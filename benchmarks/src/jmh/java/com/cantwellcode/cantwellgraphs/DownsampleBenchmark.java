@@ -0,0 +1,49 @@
+package com.cantwellcode.cantwellgraphs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Choosing which points of a line to draw, from points already projected to a phone sized graph
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DownsampleBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int size;
+
+    private float[] mX;
+    private float[] mY;
+    private int[] mOut;
+
+    @Setup
+    public void setup() {
+        FloatSeries series = BenchmarkData.createSeries(size, true);
+        mX = new float[size];
+        mY = new float[size];
+        BenchmarkData.project(series, mX, mY);
+        mOut = new int[size];
+    }
+
+    @Benchmark
+    public int lttb() {
+        return Downsampler.lttb(mX, mY, size, 2 * BenchmarkData.WIDTH, mOut);
+    }
+
+    @Benchmark
+    public int minMax() {
+        return Downsampler.minMax(mX, mY, size, mOut);
+    }
+}
@@ -0,0 +1,51 @@
+package com.cantwellcode.cantwellgraphs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting a label into a reusable buffer, compared to the String.format it replaced,
+ * and laying out the y label ticks when the range changes every frame
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LabelBenchmark {
+
+    private final char[] mBuffer = new char[LabelFormatter.MAX_LENGTH];
+    private final AxisLayout mAxisLayout = new AxisLayout();
+    private float mValue = -1234.56f;
+
+    @Benchmark
+    public int formatOneDecimal() {
+        mValue += 0.37f;
+        return LabelFormatter.formatOneDecimal(mValue, '.', mBuffer);
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        mValue += 0.37f;
+        return String.format("%.1f", mValue);
+    }
+
+    @Benchmark
+    public int formatTwoDecimals() {
+        mValue += 0.37f;
+        return LabelFormatter.formatDecimals(mValue, 2, '.', mBuffer);
+    }
+
+    @Benchmark
+    public int layoutYLabels() {
+        mValue += 0.37f;
+        mAxisLayout.layoutYLabels(mValue, mValue + 250, 1080, true, true, 8, 30);
+        return mAxisLayout.count;
+    }
+}
@@ -0,0 +1,125 @@
+package com.cantwellcode.cantwellgraphs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a line's paths: projection only, straight and smoothed paths (with each smoothing type),
+ * and the downsampled and pyramid paths
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LineLayoutBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int size;
+
+    private FloatSeries mSeries;
+    private LineLayout mLayout;
+    private LineShape mShape;
+    private float mMinY;
+    private float mMaxY;
+
+    @Setup
+    public void setup() {
+        mSeries = BenchmarkData.createSeries(size, true);
+        mMinY = mSeries.getMin(0, size);
+        mMaxY = mSeries.getMax(0, size);
+        mLayout = new LineLayout();
+        mShape = new LineShape();
+    }
+
+    @Benchmark
+    public float projectY() {
+        float sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += Projection.projectY(mSeries.get(i), mMinY, mMaxY, BenchmarkData.HEIGHT,
+                    BenchmarkData.HEIGHT / 10, BenchmarkData.HEIGHT * 9 / 10);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int straight() {
+        return build(false, DownsampleType.NONE, false);
+    }
+
+    @Benchmark
+    public int smoothed() {
+        return build(true, DownsampleType.NONE, false);
+    }
+
+    @Benchmark
+    public int smoothedWithFill() {
+        return buildSmoothedWithFill(SmoothingType.MIDPOINT);
+    }
+
+    @Benchmark
+    public int catmullRomWithFill() {
+        return buildSmoothedWithFill(SmoothingType.CATMULL_ROM);
+    }
+
+    @Benchmark
+    public int monotoneWithFill() {
+        return buildSmoothedWithFill(SmoothingType.MONOTONE);
+    }
+
+    @Benchmark
+    public int lttb() {
+        return build(false, DownsampleType.LTTB, false);
+    }
+
+    /**
+     * The pyramid is built once, so this measures drawing from it
+     */
+    @Benchmark
+    public int pyramid() {
+        return build(false, DownsampleType.NONE, true);
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private int buildSmoothedWithFill(SmoothingType type) {
+        mShape.hasFill = true;
+        mShape.smoothingType = type;
+        int verbs = build(true, DownsampleType.NONE, false);
+        mShape.smoothingType = SmoothingType.MIDPOINT;
+        mShape.hasFill = false;
+        return verbs;
+    }
+
+    private int build(boolean smoothed, DownsampleType downsampleType, boolean pyramid) {
+        LineShape g = mShape;
+        g.series = mSeries;
+        g.width = BenchmarkData.WIDTH;
+        g.height = BenchmarkData.HEIGHT;
+        g.minY = mMinY;
+        g.maxY = mMaxY;
+        g.topPaddingEnabled = true;
+        g.smoothed = smoothed;
+        g.downsampleType = downsampleType;
+        if (pyramid && g.pyramid == null) {
+            g.pyramid = new MinMaxPyramid();
+            g.rebuildPyramid = true;
+        } else {
+            g.rebuildPyramid = false;
+        }
+        if (!pyramid) g.pyramid = null;
+
+        mLayout.build(g);
+        return g.line.getVerbCount() + g.fill.getVerbCount();
+    }
+}
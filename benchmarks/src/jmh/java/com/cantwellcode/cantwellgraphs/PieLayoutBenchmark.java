@@ -0,0 +1,47 @@
+package com.cantwellcode.cantwellgraphs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculating the angles and label positions of a pie's slices
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PieLayoutBenchmark {
+
+    @Param({"1", "8", "100", "10000"})
+    public int sections;
+
+    private float[] mValues;
+    private PieLayout mLayout;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(11);
+        mValues = new float[sections];
+        for (int i = 0; i < sections; i++) {
+            mValues[i] = random.nextFloat() * 100;
+        }
+        mLayout = new PieLayout();
+        mLayout.setBounds(BenchmarkData.WIDTH, BenchmarkData.WIDTH, 0, 0);
+    }
+
+    @Benchmark
+    public float layout() {
+        mLayout.layout(mValues, sections);
+        return mLayout.labelX[sections - 1];
+    }
+}
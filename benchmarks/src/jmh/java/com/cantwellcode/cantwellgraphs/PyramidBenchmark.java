@@ -0,0 +1,55 @@
+package com.cantwellcode.cantwellgraphs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the min/max pyramid, and keeping it up to date as values are appended
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PyramidBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int size;
+
+    private FloatSeries mSeries;
+    private MinMaxPyramid mPyramid;
+
+    @Setup
+    public void setup() {
+        mSeries = BenchmarkData.createSeries(size, false);
+        mPyramid = new MinMaxPyramid();
+        mPyramid.build(mSeries);
+    }
+
+    @Benchmark
+    public int build() {
+        mPyramid.build(mSeries);
+        return mPyramid.getLevelCount();
+    }
+
+    /**
+     * Rebuild, then append one value per pixel, as a streaming line does between frames
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int append() {
+        mPyramid.build(mSeries);
+        for (int i = 0; i < BenchmarkData.WIDTH; i++) {
+            mPyramid.append(i);
+        }
+        return mPyramid.size();
+    }
+}
@@ -0,0 +1,77 @@
+package com.cantwellcode.cantwellgraphs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Min/max of a range, and the nearest point search used for hit testing
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SeriesBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int size;
+
+    private FloatSeries mSeries;
+    private FloatSeries mEvenSeries;    // without x values
+    private float[] mQueries;           // x values to search for, within the series
+    private int mQuery;
+    private float[] mViewport;
+
+    @Setup
+    public void setup() {
+        mSeries = BenchmarkData.createSeries(size, true);
+        mEvenSeries = BenchmarkData.createSeries(size, false);
+
+        Random random = new Random(7);
+        float maxX = mSeries.getX(size - 1);
+        mQueries = new float[1024];
+        for (int i = 0; i < mQueries.length; i++) {
+            mQueries[i] = random.nextFloat() * maxX;
+        }
+        mViewport = new float[Math.min(size, BenchmarkData.VIEWPORT_SIZE)];
+    }
+
+    @Benchmark
+    public float minMax() {
+        return mSeries.getMin(0, size) + mSeries.getMax(0, size);
+    }
+
+    @Benchmark
+    public float readViewport() {
+        mSeries.getValues(size - mViewport.length, mViewport.length, mViewport, 0);
+        return mViewport[0];
+    }
+
+    @Benchmark
+    public int findNearestIndex() {
+        return SeriesSearch.findNearestIndex(mSeries, nextQuery());
+    }
+
+    @Benchmark
+    public int findNearestIndexEvenlySpaced() {
+        return SeriesSearch.findNearestIndex(mEvenSeries, nextQuery());
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private float nextQuery() {
+        mQuery = (mQuery + 1) & (mQueries.length - 1);
+        return mQueries[mQuery];
+    }
+}
@@ -0,0 +1,90 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * The configuration of a bar, with the same options and defaults as a BarItem
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public class BarSpec extends ItemSpec {
+
+    private final float mValue;
+    private int mCategory;      // set by the graph it is added to
+
+    private int mStrokeColor = 0xFF000000;
+    private float mStrokeWidth = 10;
+    private int mFillColor = 0xFF000000;
+    private int mGradientStartColor = 0xFFFFFFFF;
+    private int mGradientEndColor = 0xFF000000;
+
+    public BarSpec(float value, FillType fillType) {
+        super(fillType);
+        mValue = value;
+    }
+
+    public void setStrokeColor(int color) {
+        mStrokeColor = color;
+    }
+
+    public void setStrokeWidth(float width) {
+        mStrokeWidth = width;
+    }
+
+    public void setSolidFillColor(int color) {
+        mFillColor = color;
+    }
+
+    /**
+     * @param startColor - the color at the bottom
+     * @param endColor   - the color at the top
+     */
+    public void setGradientFillColor(int startColor, int endColor) {
+        mGradientStartColor = startColor;
+        mGradientEndColor = endColor;
+    }
+
+    public float getValue() {
+        return mValue;
+    }
+
+    @Override
+    float getMinValue() {
+        return mValue;
+    }
+
+    @Override
+    float getMaxValue() {
+        return mValue;
+    }
+
+    int getStrokeColor() {
+        return mStrokeColor;
+    }
+
+    float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    int getFillColor() {
+        return mFillColor;
+    }
+
+    boolean isGradient() {
+        return mFillType == FillType.GRADIENT;
+    }
+
+    int getGradientStartColor() {
+        return mGradientStartColor;
+    }
+
+    int getGradientEndColor() {
+        return mGradientEndColor;
+    }
+
+    void setCategory(int category) {
+        mCategory = category;
+    }
+
+    int getCategory() {
+        return mCategory;
+    }
+}
@@ -0,0 +1,129 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Renders many charts to files on a shared thread pool
+ *
+ * Add the charts with addGraph and addPie, then call render. Each thread of the pool keeps its own
+ * HeadlessRenderer, so the layout buffers, images and documents are reused from one chart to the next
+ * instead of being allocated per chart. The batch can be rendered again after new charts are added
+ *
+ * The executor is not shut down by the batch, so the same pool can be shared by every batch of a run
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public final class BatchRenderer {
+
+    private final ExecutorService mExecutor;
+    private final List<RenderTask> mTasks = new ArrayList<RenderTask>();
+
+    /* One renderer per pool thread, shared by every batch that uses the thread */
+    private static final ThreadLocal<HeadlessRenderer> sRenderers = new ThreadLocal<HeadlessRenderer>() {
+        @Override
+        protected HeadlessRenderer initialValue() {
+            return new HeadlessRenderer();
+        }
+    };
+
+    /**
+     * @param executor - a bounded pool, e.g. Executors.newFixedThreadPool(cores)
+     */
+    public BatchRenderer(ExecutorService executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        mExecutor = executor;
+    }
+
+    /**
+     * Add a graph to render when render is called
+     * The spec must not be changed until the batch is rendered
+     * @param graph
+     * @param format
+     * @param file
+     */
+    public void addGraph(GraphSpec graph, ImageFormat format, File file) {
+        mTasks.add(new RenderTask(graph, null, format, file));
+    }
+
+    /**
+     * Add a pie chart to render when render is called
+     * The spec must not be changed until the batch is rendered
+     * @param pie
+     * @param format
+     * @param file
+     */
+    public void addPie(PieSpec pie, ImageFormat format, File file) {
+        mTasks.add(new RenderTask(null, pie, format, file));
+    }
+
+    /**
+     * @return number of charts waiting to be rendered
+     */
+    public int size() {
+        return mTasks.size();
+    }
+
+    /**
+     * Render every chart that was added, and wait until all of them are written
+     * The batch is cleared afterwards, even if a chart failed
+     * @throws IOException if a file could not be written. The other charts are still rendered
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public void render() throws IOException, InterruptedException {
+        try {
+            List<Future<Void>> futures = mExecutor.invokeAll(mTasks);
+            for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        } finally {
+            mTasks.clear();
+        }
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    /**
+     * Renders a single chart with the renderer of the thread it runs on
+     */
+    private static final class RenderTask implements Callable<Void> {
+        final GraphSpec graph;      // null if this is a pie
+        final PieSpec pie;
+        final ImageFormat format;
+        final File file;
+
+        RenderTask(GraphSpec graph, PieSpec pie, ImageFormat format, File file) {
+            this.graph = graph;
+            this.pie = pie;
+            this.format = format;
+            this.file = file;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            HeadlessRenderer renderer = sRenderers.get();
+            if (graph != null) {
+                renderer.render(graph, format, file);
+            } else {
+                renderer.render(pie, format, file);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+
+/**
+ * What the headless renderer draws onto: a raster image, or an SVG document
+ *
+ * Coordinates and angles work like an Android Canvas: y goes down, and angles are in degrees clockwise from 3 o'clock
+ * Colors are ARGB ints, like android.graphics.Color
+ * Text is measured with the same font for both, so a chart is laid out the same way in either format
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+abstract class ChartCanvas {
+
+    static final int ALIGN_LEFT = 0;
+    static final int ALIGN_CENTER = 1;
+    static final int ALIGN_RIGHT = 2;
+
+    private static final FontRenderContext FONT_CONTEXT = new FontRenderContext(null, true, true);
+    private static final Font BASE_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 1);
+
+    private Font mFont = BASE_FONT;
+
+    /**
+     * Start a new chart, cleared to the background color
+     */
+    abstract void begin(int width, int height, int backgroundColor);
+
+    abstract void strokePath(PathBuffer path, int color, float strokeWidth);
+
+    abstract void fillPath(PathBuffer path, int color);
+
+    /**
+     * Fill with a vertical gradient, that is clamped above y0 and below y1
+     */
+    abstract void fillPathGradient(PathBuffer path, float y0, int color0, float y1, int color1);
+
+    abstract void fillRect(float left, float top, float right, float bottom, int color);
+
+    abstract void fillRectGradient(float left, float top, float right, float bottom, float y0, int color0, float y1, int color1);
+
+    abstract void strokeRect(float left, float top, float right, float bottom, int color, float strokeWidth);
+
+    abstract void drawLine(float x0, float y0, float x1, float y1, int color, float strokeWidth);
+
+    /**
+     * A pie slice, from the center out to the arc
+     */
+    abstract void fillWedge(float centerX, float centerY, float radius, float startAngle, float sweepAngle, int color);
+
+    abstract void strokeWedge(float centerX, float centerY, float radius, float startAngle, float sweepAngle,
+                              int color, float strokeWidth);
+
+    /**
+     * @param x     - where the text is anchored, depending on the alignment
+     * @param y     - baseline of the text
+     * @param align - ALIGN_LEFT, ALIGN_CENTER or ALIGN_RIGHT
+     */
+    abstract void drawText(String text, float x, float y, int color, float size, int align);
+
+    /**
+     * Only draw inside the rectangle, until clearClip is called
+     */
+    abstract void clipRect(float left, float top, float right, float bottom);
+
+    abstract void clearClip();
+
+    float measureText(String text, float size) {
+        return (float) getFont(size).getStringBounds(text, FONT_CONTEXT).getWidth();
+    }
+
+    /**
+     * The ascent of the font, which is negative like Paint.ascent()
+     */
+    float getAscent(float size) {
+        return -getLineMetrics(size).getAscent();
+    }
+
+    float getDescent(float size) {
+        return getLineMetrics(size).getDescent();
+    }
+
+    /**
+     * The font at the given size, which is only derived again when the size changes
+     */
+    Font getFont(float size) {
+        if (mFont.getSize2D() != size) {
+            mFont = BASE_FONT.deriveFont(size);
+        }
+        return mFont;
+    }
+
+    private LineMetrics getLineMetrics(float size) {
+        return getFont(size).getLineMetrics("0", FONT_CONTEXT);
+    }
+}
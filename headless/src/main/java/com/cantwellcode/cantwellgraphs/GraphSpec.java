@@ -0,0 +1,184 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The configuration of a graph, with the same options and defaults as a Graph view
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public class GraphSpec {
+
+    private final int mWidth;
+    private final int mHeight;
+
+    private final List<ItemSpec> mItems = new ArrayList<>();
+    private int mBarCategoryCount;
+    private BarMode mBarMode = BarMode.GROUPED;
+
+    private int mBackgroundColor = 0xFFFFFFFF;
+    private boolean mTopPadding = true;
+    private boolean mBottomPadding = false;
+
+    private boolean mCustomBaseValue;
+    private float mBaseValue;
+    private boolean mCustomTopValue;
+    private float mTopValue;
+
+    private boolean mDisplayYLabels;
+    private int mLabelColor = 0xFF000000;
+    private float mLabelSize = 30;
+
+    private float mViewportStart = Float.NaN;
+    private float mViewportEnd = Float.NaN;
+
+    /**
+     * @param width  - width of the image, in pixels
+     * @param height - height of the image, in pixels
+     */
+    public GraphSpec(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /**
+     * Add an item, which is drawn after (on top of) the items that were added before it
+     * A bar gets a new category of its own
+     * @param item - either a LineSpec or a BarSpec
+     */
+    public void addGraphItem(ItemSpec item) {
+        if (item instanceof BarSpec) ((BarSpec) item).setCategory(mBarCategoryCount++);
+        mItems.add(item);
+    }
+
+    /**
+     * Add a bar to a category, where it is grouped or stacked with the other bars of the category
+     * @param bar
+     * @param category - from 0
+     */
+    public void addBarItem(BarSpec bar, int category) {
+        if (category < 0) {
+            throw new IllegalArgumentException("category must not be negative");
+        }
+        bar.setCategory(category);
+        mBarCategoryCount = Math.max(mBarCategoryCount, category + 1);
+        mItems.add(bar);
+    }
+
+    public void setBarMode(BarMode mode) {
+        mBarMode = mode;
+    }
+
+    public void setGraphBackgroundColor(int color) {
+        mBackgroundColor = color;
+    }
+
+    public void enableGraphPaddingTop(boolean enabled) {
+        mTopPadding = enabled;
+    }
+
+    public void enableGraphPaddingBottom(boolean enabled) {
+        mBottomPadding = enabled;
+    }
+
+    public void displayYLabels(boolean display) {
+        mDisplayYLabels = display;
+    }
+
+    public void setLabelColor(int color) {
+        mLabelColor = color;
+    }
+
+    public void setLabelSize(float size) {
+        mLabelSize = size;
+    }
+
+    public void setYBaseValue(float base) {
+        mCustomBaseValue = true;
+        mBaseValue = base;
+    }
+
+    public void setYTopValue(float top) {
+        mCustomTopValue = true;
+        mTopValue = top;
+    }
+
+    /**
+     * Only draw the x values between start and end, stretched across the graph
+     * @param start
+     * @param end
+     */
+    public void setViewport(float start, float end) {
+        mViewportStart = start;
+        mViewportEnd = end;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    List<ItemSpec> getItems() {
+        return mItems;
+    }
+
+    int getBarCategoryCount() {
+        return mBarCategoryCount;
+    }
+
+    BarMode getBarMode() {
+        return mBarMode;
+    }
+
+    int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    boolean isTopPaddingEnabled() {
+        return mTopPadding;
+    }
+
+    boolean isBottomPaddingEnabled() {
+        return mBottomPadding;
+    }
+
+    boolean isDisplayingYLabels() {
+        return mDisplayYLabels;
+    }
+
+    int getLabelColor() {
+        return mLabelColor;
+    }
+
+    float getLabelSize() {
+        return mLabelSize;
+    }
+
+    float getViewportStart() {
+        return mViewportStart;
+    }
+
+    float getViewportEnd() {
+        return mViewportEnd;
+    }
+
+    boolean hasCustomBaseValue() {
+        return mCustomBaseValue;
+    }
+
+    float getBaseValue() {
+        return mBaseValue;
+    }
+
+    boolean hasCustomTopValue() {
+        return mCustomTopValue;
+    }
+
+    float getTopValue() {
+        return mTopValue;
+    }
+}
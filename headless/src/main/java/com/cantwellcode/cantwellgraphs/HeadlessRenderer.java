@@ -0,0 +1,374 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders graphs and pie charts to PNG or SVG on a plain JVM, with the same layout code as the Android views
+ *
+ * A renderer reuses its layout buffers, image and document from one chart to the next, so it is not thread safe
+ * Use one renderer per thread, or a BatchRenderer to render many charts on a thread pool
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public final class HeadlessRenderer {
+
+    private static final int SEPARATOR_COLOR = 0xFF000000;
+    private static final float SEPARATOR_WIDTH = 5;
+
+    private final ImageCanvas mImageCanvas = new ImageCanvas();
+    private final SvgCanvas mSvgCanvas = new SvgCanvas();
+
+    /* Reused layout state */
+    private final LineLayout mLineLayout = new LineLayout();
+    private final LineShape mShape = new LineShape();
+    private final PieLayout mPieLayout = new PieLayout();
+    private int[] mItemSeries = new int[0];         // which bar of its category each item is
+    private int[] mCategoryBarCounts = new int[0];
+    private float[] mStackSums = new float[0];
+    private float[] mBarValues = new float[0];      // by series, then category, see BarLayout.layoutSeries
+    private float[] mBarRects = new float[0];
+    private float[] mPieValues = new float[0];
+    private final AxisLayout mAxisLayout = new AxisLayout();
+    private final char[] mLabelChars = new char[LabelFormatter.MAX_LENGTH];
+    private final float[] mRange = new float[2];
+    private final char mDecimalSeparator = new DecimalFormatSymbols().getDecimalSeparator();
+
+    /**
+     * Render the graph to an image
+     * The image is reused by the next chart of the same size that is rendered to an image, copy it to keep it
+     * @param graph
+     * @return
+     */
+    public BufferedImage renderImage(GraphSpec graph) {
+        draw(graph, mImageCanvas);
+        return mImageCanvas.getImage();
+    }
+
+    /**
+     * Render the pie chart to an image
+     * The image is reused by the next chart of the same size that is rendered to an image, copy it to keep it
+     * @param pie
+     * @return
+     */
+    public BufferedImage renderImage(PieSpec pie) {
+        draw(pie, mImageCanvas);
+        return mImageCanvas.getImage();
+    }
+
+    public String renderSvg(GraphSpec graph) {
+        draw(graph, mSvgCanvas);
+        mSvgCanvas.end();
+        return mSvgCanvas.getDocument();
+    }
+
+    public String renderSvg(PieSpec pie) {
+        draw(pie, mSvgCanvas);
+        mSvgCanvas.end();
+        return mSvgCanvas.getDocument();
+    }
+
+    /**
+     * Render the graph to a PNG or SVG file
+     * @param graph
+     * @param format
+     * @param file
+     * @throws IOException
+     */
+    public void render(GraphSpec graph, ImageFormat format, File file) throws IOException {
+        if (format == ImageFormat.PNG) {
+            writePng(renderImage(graph), file);
+        } else {
+            draw(graph, mSvgCanvas);
+            writeSvg(file);
+        }
+    }
+
+    /**
+     * Render the pie chart to a PNG or SVG file
+     * @param pie
+     * @param format
+     * @param file
+     * @throws IOException
+     */
+    public void render(PieSpec pie, ImageFormat format, File file) throws IOException {
+        if (format == ImageFormat.PNG) {
+            writePng(renderImage(pie), file);
+        } else {
+            draw(pie, mSvgCanvas);
+            writeSvg(file);
+        }
+    }
+
+    /****************************************
+                    Graph
+     ****************************************/
+
+    /**
+     * Draw the graph the way Graph.onDraw does: the background, each item in the order they were added, and the y labels
+     */
+    private void draw(GraphSpec graph, ChartCanvas canvas) {
+        int width = graph.getWidth();
+        int height = graph.getHeight();
+        List<ItemSpec> items = graph.getItems();
+        int categoryCount = graph.getBarCategoryCount();
+        int seriesCount = fillBarTable(graph, items, categoryCount);
+
+        float minY = graph.hasCustomBaseValue() ? graph.getBaseValue() : mRange[0];
+        float maxY = graph.hasCustomTopValue() ? graph.getTopValue() : mRange[1];
+        int labelWidth = graph.isDisplayingYLabels() ? layoutLabels(graph, canvas, minY, maxY) : 0;
+
+        BarLayout.layoutSeries(mBarValues, seriesCount, categoryCount, graph.getBarMode(), width, height, labelWidth,
+                minY, maxY, graph.isTopPaddingEnabled(), graph.isBottomPaddingEnabled(), mBarRects);
+
+        canvas.begin(width, height, graph.getBackgroundColor());
+
+        for (int i = 0; i < items.size(); i++) {
+            ItemSpec item = items.get(i);
+            if (item instanceof LineSpec) {
+                drawLine(graph, (LineSpec) item, canvas, minY, maxY, labelWidth);
+            } else if (item instanceof BarSpec) {
+                BarSpec bar = (BarSpec) item;
+                drawBar(graph, bar, 4 * (mItemSeries[i] * categoryCount + bar.getCategory()), canvas);
+            }
+        }
+
+        if (graph.isDisplayingYLabels()) drawLabels(graph, canvas, labelWidth);
+    }
+
+    private void drawLine(GraphSpec graph, LineSpec line, ChartCanvas canvas, float minY, float maxY, int labelWidth) {
+        LineShape g = mShape;
+        line.capture(g);
+        g.width = graph.getWidth();
+        g.height = graph.getHeight();
+        g.minY = minY;
+        g.maxY = maxY;
+        g.labelWidth = labelWidth;
+        g.viewportStart = graph.getViewportStart();
+        g.viewportEnd = graph.getViewportEnd();
+        g.topPaddingEnabled = graph.isTopPaddingEnabled();
+        g.bottomPaddingEnabled = graph.isBottomPaddingEnabled();
+        mLineLayout.build(g);
+        if (g.line.isEmpty()) return;
+
+        if (g.hasViewport()) {
+            canvas.clipRect(g.labelWidth, 0, g.width, g.height);
+        }
+
+        if (g.hasFill) {
+            if (line.isGradient()) {
+                canvas.fillPathGradient(g.fill, 0, line.getGradientEndColor(), g.height, line.getGradientStartColor());
+            } else {
+                canvas.fillPath(g.fill, line.getFillColor());
+            }
+        }
+        canvas.strokePath(g.line, line.getLineColor(), line.getLineWidth());
+
+        if (g.hasViewport()) {
+            canvas.clearClip();
+        }
+    }
+
+    /**
+     * Find the y range of the items, and place each bar in its category, in one pass like Graph.onDraw
+     * The range (min, max) is left in mRange, with the max never less than 0
+     * @return the most bars in a single category
+     */
+    private int fillBarTable(GraphSpec graph, List<ItemSpec> items, int categoryCount) {
+        int itemCount = items.size();
+        if (mItemSeries.length < itemCount) mItemSeries = new int[itemCount];
+        if (mCategoryBarCounts.length < categoryCount) {
+            mCategoryBarCounts = new int[categoryCount];
+            mStackSums = new float[categoryCount];
+        }
+        Arrays.fill(mCategoryBarCounts, 0, categoryCount, 0);
+        Arrays.fill(mStackSums, 0, categoryCount, 0);
+        Arrays.fill(mBarValues, 0);
+
+        boolean stacked = graph.getBarMode() == BarMode.STACKED;
+        int seriesCount = 0;
+        float minY = Float.MAX_VALUE;
+        float maxY = 0;
+
+        for (int i = 0; i < itemCount; i++) {
+            ItemSpec item = items.get(i);
+            float min;
+            float max;
+
+            if (item instanceof BarSpec) {
+                BarSpec bar = (BarSpec) item;
+                int category = bar.getCategory();
+                int series = mCategoryBarCounts[category]++;
+                if (series == seriesCount) {
+                    seriesCount++;
+                    if (mBarValues.length < seriesCount * categoryCount) {
+                        mBarValues = Arrays.copyOf(mBarValues, Math.max(seriesCount * categoryCount,
+                                2 * mBarValues.length));
+                        mBarRects = new float[4 * mBarValues.length];
+                    }
+                }
+                mItemSeries[i] = series;
+                mBarValues[series * categoryCount + category] = bar.getValue();
+
+                /* A stacked bar reaches the sum of its category so far */
+                min = bar.getValue();
+                if (stacked) {
+                    mStackSums[category] += min;
+                    min = mStackSums[category];
+                }
+                max = min;
+            } else {
+                min = item.getMinValue();
+                max = item.getMaxValue();
+            }
+
+            if (min < minY) minY = min;
+            if (max > maxY) maxY = max;
+        }
+
+        mRange[0] = minY;
+        mRange[1] = maxY;
+        return seriesCount;
+    }
+
+    private void drawBar(GraphSpec graph, BarSpec bar, int offset, ChartCanvas canvas) {
+        float[] r = mBarRects;
+        float left = r[offset + BarLayout.LEFT];
+        float top = r[offset + BarLayout.TOP];
+        float right = r[offset + BarLayout.RIGHT];
+        float bottom = r[offset + BarLayout.BOTTOM];
+
+        if (bar.hasFill()) {
+            if (bar.isGradient()) {
+                canvas.fillRectGradient(left, top, right, bottom,
+                        0, bar.getGradientEndColor(), graph.getHeight(), bar.getGradientStartColor());
+            } else {
+                canvas.fillRect(left, top, right, bottom, bar.getFillColor());
+            }
+        }
+        canvas.strokeRect(left, top, right, bottom, bar.getStrokeColor(), bar.getStrokeWidth());
+    }
+
+    /**
+     * Draw the labels that were laid out by layoutLabels
+     */
+    private void drawLabels(GraphSpec graph, ChartCanvas canvas, int labelWidth) {
+        float size = graph.getLabelSize();
+        for (int i = 0; i < mAxisLayout.count; i++) {
+            int length = formatLabel(i);
+            length = LabelFormatter.appendSpaces(mLabelChars, length, 2);
+            canvas.drawText(new String(mLabelChars, 0, length), labelWidth, mAxisLayout.baselines[i],
+                    graph.getLabelColor(), size, ChartCanvas.ALIGN_RIGHT);
+        }
+
+        /* Draw a line separating the labels and the graph itself */
+        canvas.drawLine(labelWidth - 2, 0, labelWidth - 2, graph.getHeight(), SEPARATOR_COLOR, SEPARATOR_WIDTH);
+    }
+
+    /**
+     * Lay out the labels the way Graph does, and the width of the label area, based on the width of the widest label
+     */
+    private int layoutLabels(GraphSpec graph, ChartCanvas canvas, float minY, float maxY) {
+        float size = graph.getLabelSize();
+        mAxisLayout.layoutYLabels(minY, maxY, graph.getHeight(), graph.isTopPaddingEnabled(),
+                graph.isBottomPaddingEnabled(), canvas.getDescent(size), size);
+
+        float width = 0;
+        for (int i = 0; i < mAxisLayout.count; i++) {
+            int length = LabelFormatter.appendSpaces(mLabelChars, formatLabel(i), 4);
+            width = Math.max(width, canvas.measureText(new String(mLabelChars, 0, length), size));
+        }
+        return (int) width;
+    }
+
+    private int formatLabel(int index) {
+        return LabelFormatter.formatDecimals(mAxisLayout.values[index], mAxisLayout.decimals, mDecimalSeparator,
+                mLabelChars);
+    }
+
+    /****************************************
+                    Pie
+     ****************************************/
+
+    /**
+     * Draw the pie the way PieChart.onDraw does: every slice, then every label on top of them
+     */
+    private void draw(PieSpec pie, ChartCanvas canvas) {
+        int padding = pie.getPadding();
+        PieLayout layout = mPieLayout;
+        layout.setBounds(pie.getWidth() - 2 * padding, pie.getHeight() - 2 * padding, padding, padding);
+
+        List<PieSectionSpec> sections = pie.getSections();
+        int count = sections.size();
+        if (mPieValues.length < count) {
+            mPieValues = new float[count];
+        }
+        for (int i = 0; i < count; i++) {
+            mPieValues[i] = sections.get(i).getValue();
+        }
+        layout.layout(mPieValues, count);
+
+        canvas.begin(pie.getWidth(), pie.getHeight(), pie.getBackgroundColor());
+
+        if (layout.sum == 0) {
+            canvas.fillWedge(layout.centerX, layout.centerY, layout.radius, 0, 360, pie.getEmptyColor());
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            PieSectionSpec section = sections.get(i);
+            float sweep = layout.sweepAngles[i];
+            if (sweep > 0) {
+                canvas.fillWedge(layout.centerX, layout.centerY, layout.radius, layout.startAngles[i], sweep,
+                        section.getFillColor());
+                canvas.strokeWedge(layout.centerX, layout.centerY, layout.radius, layout.startAngles[i], sweep,
+                        section.getStrokeColor(), section.getStrokeWidth());
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            PieSectionSpec section = sections.get(i);
+            if (layout.sweepAngles[i] <= 0 || !section.hasLabel()) continue;
+
+            /* Move the baseline so that the text is centered on the label position */
+            float size = section.getLabelSize();
+            float y = layout.labelY[i];
+            if (layout.count > 1) {
+                y -= (canvas.getDescent(size) + canvas.getAscent(size)) / 2;
+            }
+
+            String text = PieLayout.formatLabel(section.getLabelType(), section.getName(), section.getValue(),
+                    layout.percentages[i]);
+            canvas.drawText(text, layout.labelX[i], y, section.getLabelColor(), size, ChartCanvas.ALIGN_CENTER);
+        }
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private static void writePng(BufferedImage image, File file) throws IOException {
+        if (!ImageIO.write(image, "png", file)) {
+            throw new IOException("No PNG writer is available");
+        }
+    }
+
+    private void writeSvg(File file) throws IOException {
+        mSvgCanvas.end();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            mSvgCanvas.writeTo(writer);
+        } finally {
+            writer.close();
+        }
+    }
+}
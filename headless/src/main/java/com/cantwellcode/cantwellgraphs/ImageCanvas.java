@@ -0,0 +1,190 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws a chart into a BufferedImage with Java2D
+ *
+ * The image, and the shapes used to draw into it, are reused from one chart to the next when the size doesn't change
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class ImageCanvas extends ChartCanvas {
+
+    private BufferedImage mImage;
+    private Graphics2D mGraphics;
+
+    private final Path2D.Float mPath = new Path2D.Float();
+    private final Rectangle2D.Float mRect = new Rectangle2D.Float();
+    private final Line2D.Float mLine = new Line2D.Float();
+    private final Arc2D.Float mArc = new Arc2D.Float();
+
+    /**
+     * The image of the last chart, which is drawn over by the next one
+     */
+    BufferedImage getImage() {
+        return mImage;
+    }
+
+    @Override
+    void begin(int width, int height, int backgroundColor) {
+        if (mImage == null || mImage.getWidth() != width || mImage.getHeight() != height) {
+            if (mGraphics != null) mGraphics.dispose();
+            mImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            mGraphics = mImage.createGraphics();
+            mGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            mGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            mGraphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        }
+        mGraphics.setClip(null);
+        mGraphics.setComposite(AlphaComposite.Src);
+        mGraphics.setColor(new Color(backgroundColor, true));
+        mGraphics.fillRect(0, 0, width, height);
+        mGraphics.setComposite(AlphaComposite.SrcOver);
+    }
+
+    @Override
+    void strokePath(PathBuffer path, int color, float strokeWidth) {
+        setStroke(color, strokeWidth);
+        mGraphics.draw(toPath(path));
+    }
+
+    @Override
+    void fillPath(PathBuffer path, int color) {
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.fill(toPath(path));
+    }
+
+    @Override
+    void fillPathGradient(PathBuffer path, float y0, int color0, float y1, int color1) {
+        mGraphics.setPaint(new GradientPaint(0, y0, new Color(color0, true), 0, y1, new Color(color1, true)));
+        mGraphics.fill(toPath(path));
+    }
+
+    @Override
+    void fillRect(float left, float top, float right, float bottom, int color) {
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.fill(rect(left, top, right, bottom));
+    }
+
+    @Override
+    void fillRectGradient(float left, float top, float right, float bottom, float y0, int color0, float y1, int color1) {
+        mGraphics.setPaint(new GradientPaint(0, y0, new Color(color0, true), 0, y1, new Color(color1, true)));
+        mGraphics.fill(rect(left, top, right, bottom));
+    }
+
+    @Override
+    void strokeRect(float left, float top, float right, float bottom, int color, float strokeWidth) {
+        setStroke(color, strokeWidth);
+        mGraphics.draw(rect(left, top, right, bottom));
+    }
+
+    @Override
+    void drawLine(float x0, float y0, float x1, float y1, int color, float strokeWidth) {
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.setStroke(new BasicStroke(strokeWidth));
+        mLine.setLine(x0, y0, x1, y1);
+        mGraphics.draw(mLine);
+    }
+
+    @Override
+    void fillWedge(float centerX, float centerY, float radius, float startAngle, float sweepAngle, int color) {
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.fill(wedge(centerX, centerY, radius, startAngle, sweepAngle));
+    }
+
+    @Override
+    void strokeWedge(float centerX, float centerY, float radius, float startAngle, float sweepAngle,
+                     int color, float strokeWidth) {
+        setStroke(color, strokeWidth);
+        mGraphics.draw(wedge(centerX, centerY, radius, startAngle, sweepAngle));
+    }
+
+    @Override
+    void drawText(String text, float x, float y, int color, float size, int align) {
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.setFont(getFont(size));
+        if (align != ALIGN_LEFT) {
+            float width = measureText(text, size);
+            x -= align == ALIGN_CENTER ? width / 2 : width;
+        }
+        mGraphics.drawString(text, x, y);
+    }
+
+    @Override
+    void clipRect(float left, float top, float right, float bottom) {
+        mGraphics.setClip(rect(left, top, right, bottom));
+    }
+
+    @Override
+    void clearClip() {
+        mGraphics.setClip(null);
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    /**
+     * Strokes have round caps, like the paints of line and bar items
+     */
+    private void setStroke(int color, float strokeWidth) {
+        mGraphics.setColor(new Color(color, true));
+        mGraphics.setStroke(new BasicStroke(strokeWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_MITER));
+    }
+
+    private Rectangle2D.Float rect(float left, float top, float right, float bottom) {
+        mRect.setRect(left, top, right - left, bottom - top);
+        return mRect;
+    }
+
+    /**
+     * Java2D angles go counterclockwise, so they are negated
+     */
+    private Arc2D.Float wedge(float centerX, float centerY, float radius, float startAngle, float sweepAngle) {
+        mArc.setArc(centerX - radius, centerY - radius, 2 * radius, 2 * radius, -startAngle, -sweepAngle, Arc2D.PIE);
+        return mArc;
+    }
+
+    private Path2D.Float toPath(PathBuffer buffer) {
+        Path2D.Float path = mPath;
+        path.reset();
+        float[] c = buffer.getCoords();
+        int k = 0;
+        int verbCount = buffer.getVerbCount();
+        for (int i = 0; i < verbCount; i++) {
+            switch (buffer.getVerb(i)) {
+                case PathBuffer.MOVE:
+                    path.moveTo(c[k], c[k + 1]);
+                    k += 2;
+                    break;
+                case PathBuffer.LINE:
+                    path.lineTo(c[k], c[k + 1]);
+                    k += 2;
+                    break;
+                case PathBuffer.QUAD:
+                    path.quadTo(c[k], c[k + 1], c[k + 2], c[k + 3]);
+                    k += 4;
+                    break;
+                case PathBuffer.CUBIC:
+                    path.curveTo(c[k], c[k + 1], c[k + 2], c[k + 3], c[k + 4], c[k + 5]);
+                    k += 6;
+                    break;
+                case PathBuffer.CLOSE:
+                    path.closePath();
+                    break;
+            }
+        }
+        return path;
+    }
+}
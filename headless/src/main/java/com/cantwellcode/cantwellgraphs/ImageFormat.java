@@ -0,0 +1,10 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * The formats a HeadlessRenderer can write
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public enum ImageFormat {
+    PNG, SVG
+}
@@ -0,0 +1,29 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * An item of a GraphSpec, either a LineSpec or a BarSpec
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public abstract class ItemSpec {
+
+    protected FillType mFillType;   // None, Solid, Gradient
+
+    ItemSpec(FillType fillType) {
+        mFillType = fillType;
+    }
+
+    /**
+     * The min value of the item's data, or NaN if it has none
+     */
+    abstract float getMinValue();
+
+    /**
+     * The max value of the item's data, or NaN if it has none
+     */
+    abstract float getMaxValue();
+
+    protected boolean hasFill() {
+        return mFillType != FillType.NONE;
+    }
+}
@@ -0,0 +1,131 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * The configuration of a line, with the same options and defaults as a LineItem
+ *
+ * A spec is only read while it is rendered, so the same spec can be rendered by several threads at once,
+ * as long as it and its data source are not changed while they are
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public class LineSpec extends ItemSpec {
+
+    private final SeriesDataSource mSource;
+
+    private int mLineColor = 0xFF000000;
+    private float mLineWidth = 10;
+    private int mFillColor = 0xFF000000;
+    private int mGradientStartColor = 0xFFFFFFFF;
+    private int mGradientEndColor = 0xFF000000;
+    private boolean mIsSmoothed;
+    private SmoothingType mSmoothingType = SmoothingType.MIDPOINT;
+    private DownsampleType mDownsampleType = DownsampleType.NONE;
+
+    /**
+     * Constructor
+     *
+     * @param source   - datapoints, optionally with x values
+     * @param fillType - fill type for below the line : none, solid, gradient
+     */
+    public LineSpec(SeriesDataSource source, FillType fillType) {
+        super(fillType);
+        mSource = source;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param values   - datapoints
+     * @param fillType - fill type for below the line : none, solid, gradient
+     */
+    public LineSpec(float[] values, FillType fillType) {
+        this(new FloatSeries(values), fillType);
+    }
+
+    public void setLineColor(int color) {
+        mLineColor = color;
+    }
+
+    public void setLineWidth(float width) {
+        mLineWidth = width;
+    }
+
+    public void setSolidFillColor(int color) {
+        mFillColor = color;
+    }
+
+    /**
+     * @param startColor - the color at the bottom of the fill
+     * @param endColor   - the color at the top of the fill
+     */
+    public void setGradientFillColor(int startColor, int endColor) {
+        mGradientStartColor = startColor;
+        mGradientEndColor = endColor;
+    }
+
+    public void setSmoothed(boolean isSmoothed) {
+        mIsSmoothed = isSmoothed;
+    }
+
+    public void setSmoothingType(SmoothingType type) {
+        mSmoothingType = type;
+    }
+
+    public void setDownsampleType(DownsampleType type) {
+        mDownsampleType = type;
+    }
+
+    public SeriesDataSource getDataSource() {
+        return mSource;
+    }
+
+    @Override
+    float getMinValue() {
+        int size = mSource.size();
+        return size == 0 ? Float.NaN : mSource.getMin(0, size);
+    }
+
+    @Override
+    float getMaxValue() {
+        int size = mSource.size();
+        return size == 0 ? Float.NaN : mSource.getMax(0, size);
+    }
+
+    /**
+     * Capture the line's options into a shape, to be built by a LineLayout
+     */
+    void capture(LineShape g) {
+        g.series = mSource;
+        g.smoothed = mIsSmoothed;
+        g.smoothingType = mSmoothingType;
+        g.hasFill = hasFill();
+        g.downsampleType = mDownsampleType;
+        g.pyramid = null;
+        g.windowSize = 0;
+        g.evictedCount = 0;
+    }
+
+    int getLineColor() {
+        return mLineColor;
+    }
+
+    float getLineWidth() {
+        return mLineWidth;
+    }
+
+    int getFillColor() {
+        return mFillColor;
+    }
+
+    boolean isGradient() {
+        return mFillType == FillType.GRADIENT;
+    }
+
+    int getGradientStartColor() {
+        return mGradientStartColor;
+    }
+
+    int getGradientEndColor() {
+        return mGradientEndColor;
+    }
+}
@@ -0,0 +1,95 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * The configuration of a section of a pie, with the same options and defaults as a PieSection
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public class PieSectionSpec {
+
+    private final String mName;
+    private final float mValue;
+
+    private float mStrokeWidth = 6;
+    private int mStrokeColor = 0xFF000000;
+    private int mFillColor = 0xFFFFFFFF;
+
+    private PieLabelType mLabelType = PieLabelType.NAME;
+    private int mLabelColor = 0xFF000000;
+    private float mLabelSize = 30;
+    private boolean mShowLabel = true;
+
+    /**
+     * Constructor
+     * @param name or title of this section of the pie
+     * @param value of this section of the pie
+     */
+    public PieSectionSpec(String name, float value) {
+        mName = name;
+        mValue = value;
+    }
+
+    public void setStrokeWidth(float width) {
+        mStrokeWidth = width;
+    }
+
+    public void setStrokeColor(int color) {
+        mStrokeColor = color;
+    }
+
+    public void setFillColor(int color) {
+        mFillColor = color;
+    }
+
+    public void setLabelType(PieLabelType type) {
+        mLabelType = type;
+    }
+
+    public void setLabelColor(int color) {
+        mLabelColor = color;
+    }
+
+    public void setLabelSize(float size) {
+        mLabelSize = size;
+    }
+
+    public void showLabel(boolean show) {
+        mShowLabel = show;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public float getValue() {
+        return mValue;
+    }
+
+    float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    int getStrokeColor() {
+        return mStrokeColor;
+    }
+
+    int getFillColor() {
+        return mFillColor;
+    }
+
+    PieLabelType getLabelType() {
+        return mLabelType;
+    }
+
+    int getLabelColor() {
+        return mLabelColor;
+    }
+
+    float getLabelSize() {
+        return mLabelSize;
+    }
+
+    boolean hasLabel() {
+        return mShowLabel;
+    }
+}
@@ -0,0 +1,78 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The configuration of a pie chart, with the same options and defaults as a PieChart view
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public class PieSpec {
+
+    private final int mWidth;
+    private final int mHeight;
+    private int mPadding;
+
+    private final List<PieSectionSpec> mSections = new ArrayList<>();
+
+    private int mBackgroundColor = 0xFFFFFFFF;
+    private int mEmptyColor = 0xFF444444;
+
+    /**
+     * @param width  - width of the image, in pixels
+     * @param height - height of the image, in pixels
+     */
+    public PieSpec(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+    }
+
+    public void addPieItem(PieSectionSpec section) {
+        mSections.add(section);
+    }
+
+    public void setBackgroundColor(int color) {
+        mBackgroundColor = color;
+    }
+
+    /**
+     * The color of the pie when the sections add up to 0
+     * @param color
+     */
+    public void setEmptyColor(int color) {
+        mEmptyColor = color;
+    }
+
+    /**
+     * Space left on every side of the pie, like a view's padding
+     * @param padding
+     */
+    public void setPadding(int padding) {
+        mPadding = padding;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    int getPadding() {
+        return mPadding;
+    }
+
+    List<PieSectionSpec> getSections() {
+        return mSections;
+    }
+
+    int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    int getEmptyColor() {
+        return mEmptyColor;
+    }
+}
@@ -0,0 +1,367 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Draws a chart as an SVG document
+ *
+ * The document is built in a StringBuilder that is reused from one chart to the next,
+ * and numbers are written with at most 2 decimal places to keep the documents small
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class SvgCanvas extends ChartCanvas {
+
+    private final StringBuilder mOut = new StringBuilder(1 << 14);
+    private int mGradientCount;
+    private int mClipCount;
+    private boolean mClipped;
+
+    /**
+     * Write the document of the last chart
+     * @param writer
+     * @throws IOException
+     */
+    void writeTo(Writer writer) throws IOException {
+        writer.append(mOut);
+    }
+
+    /**
+     * The document of the last chart
+     */
+    String getDocument() {
+        return mOut.toString();
+    }
+
+    @Override
+    void begin(int width, int height, int backgroundColor) {
+        mOut.setLength(0);
+        mGradientCount = 0;
+        mClipCount = 0;
+        mClipped = false;
+
+        mOut.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+                .append("\" height=\"").append(height)
+                .append("\" viewBox=\"0 0 ").append(width).append(' ').append(height).append("\">\n");
+        mOut.append("<rect width=\"100%\" height=\"100%\"");
+        appendFill(backgroundColor);
+        mOut.append("/>\n");
+    }
+
+    /**
+     * Close the document, once the chart has been drawn
+     */
+    void end() {
+        clearClip();
+        mOut.append("</svg>\n");
+    }
+
+    @Override
+    void strokePath(PathBuffer path, int color, float strokeWidth) {
+        appendPath(path);
+        mOut.append(" fill=\"none\"");
+        appendStroke(color, strokeWidth);
+        mOut.append("/>\n");
+    }
+
+    @Override
+    void fillPath(PathBuffer path, int color) {
+        appendPath(path);
+        appendFill(color);
+        mOut.append("/>\n");
+    }
+
+    @Override
+    void fillPathGradient(PathBuffer path, float y0, int color0, float y1, int color1) {
+        String id = appendGradient(y0, color0, y1, color1);
+        appendPath(path);
+        mOut.append(" fill=\"url(#").append(id).append(")\"/>\n");
+    }
+
+    @Override
+    void fillRect(float left, float top, float right, float bottom, int color) {
+        appendRect(left, top, right, bottom);
+        appendFill(color);
+        mOut.append("/>\n");
+    }
+
+    @Override
+    void fillRectGradient(float left, float top, float right, float bottom, float y0, int color0, float y1, int color1) {
+        String id = appendGradient(y0, color0, y1, color1);
+        appendRect(left, top, right, bottom);
+        mOut.append(" fill=\"url(#").append(id).append(")\"/>\n");
+    }
+
+    @Override
+    void strokeRect(float left, float top, float right, float bottom, int color, float strokeWidth) {
+        appendRect(left, top, right, bottom);
+        mOut.append(" fill=\"none\"");
+        appendStroke(color, strokeWidth);
+        mOut.append("/>\n");
+    }
+
+    @Override
+    void drawLine(float x0, float y0, float x1, float y1, int color, float strokeWidth) {
+        mOut.append("<line x1=\"");
+        appendNumber(x0);
+        mOut.append("\" y1=\"");
+        appendNumber(y0);
+        mOut.append("\" x2=\"");
+        appendNumber(x1);
+        mOut.append("\" y2=\"");
+        appendNumber(y1);
+        mOut.append('"');
+        appendColor(" stroke", color);
+        mOut.append(" stroke-width=\"");
+        appendNumber(strokeWidth);
+        mOut.append("\"/>\n");
+    }
+
+    @Override
+    void fillWedge(float centerX, float centerY, float radius, float startAngle, float sweepAngle, int color) {
+        appendWedge(centerX, centerY, radius, startAngle, sweepAngle);
+        appendFill(color);
+        mOut.append("/>\n");
+    }
+
+    @Override
+    void strokeWedge(float centerX, float centerY, float radius, float startAngle, float sweepAngle,
+                     int color, float strokeWidth) {
+        appendWedge(centerX, centerY, radius, startAngle, sweepAngle);
+        mOut.append(" fill=\"none\"");
+        appendStroke(color, strokeWidth);
+        mOut.append("/>\n");
+    }
+
+    @Override
+    void drawText(String text, float x, float y, int color, float size, int align) {
+        mOut.append("<text x=\"");
+        appendNumber(x);
+        mOut.append("\" y=\"");
+        appendNumber(y);
+        mOut.append("\" font-family=\"sans-serif\" font-size=\"");
+        appendNumber(size);
+        mOut.append('"');
+        if (align == ALIGN_CENTER) {
+            mOut.append(" text-anchor=\"middle\"");
+        } else if (align == ALIGN_RIGHT) {
+            mOut.append(" text-anchor=\"end\"");
+        }
+        // Keep the spaces the labels are padded with
+        mOut.append(" xml:space=\"preserve\"");
+        appendFill(color);
+        mOut.append('>');
+        appendEscaped(text);
+        mOut.append("</text>\n");
+    }
+
+    @Override
+    void clipRect(float left, float top, float right, float bottom) {
+        clearClip();
+        String id = "c" + mClipCount++;
+        mOut.append("<clipPath id=\"").append(id).append("\">");
+        appendRect(left, top, right, bottom);
+        mOut.append("/></clipPath>\n<g clip-path=\"url(#").append(id).append(")\">\n");
+        mClipped = true;
+    }
+
+    @Override
+    void clearClip() {
+        if (mClipped) {
+            mOut.append("</g>\n");
+            mClipped = false;
+        }
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private void appendPath(PathBuffer buffer) {
+        mOut.append("<path d=\"");
+        float[] c = buffer.getCoords();
+        int k = 0;
+        int verbCount = buffer.getVerbCount();
+        for (int i = 0; i < verbCount; i++) {
+            switch (buffer.getVerb(i)) {
+                case PathBuffer.MOVE:
+                    mOut.append('M');
+                    k = appendPoints(c, k, 1);
+                    break;
+                case PathBuffer.LINE:
+                    mOut.append('L');
+                    k = appendPoints(c, k, 1);
+                    break;
+                case PathBuffer.QUAD:
+                    mOut.append('Q');
+                    k = appendPoints(c, k, 2);
+                    break;
+                case PathBuffer.CUBIC:
+                    mOut.append('C');
+                    k = appendPoints(c, k, 3);
+                    break;
+                case PathBuffer.CLOSE:
+                    mOut.append('Z');
+                    break;
+            }
+        }
+        mOut.append('"');
+    }
+
+    private int appendPoints(float[] c, int k, int points) {
+        for (int p = 0; p < points; p++) {
+            if (p > 0) mOut.append(' ');
+            appendNumber(c[k++]);
+            mOut.append(',');
+            appendNumber(c[k++]);
+        }
+        return k;
+    }
+
+    private void appendRect(float left, float top, float right, float bottom) {
+        mOut.append("<rect x=\"");
+        appendNumber(left);
+        mOut.append("\" y=\"");
+        appendNumber(top);
+        mOut.append("\" width=\"");
+        appendNumber(right - left);
+        mOut.append("\" height=\"");
+        appendNumber(bottom - top);
+        mOut.append('"');
+    }
+
+    /**
+     * A full circle can't be drawn with a single arc, so it is drawn as two half circles
+     */
+    private void appendWedge(float centerX, float centerY, float radius, float startAngle, float sweepAngle) {
+        mOut.append("<path d=\"");
+        if (sweepAngle >= 360) {
+            mOut.append('M');
+            appendPoint(centerX - radius, centerY);
+            appendArc(radius, false, centerX + radius, centerY);
+            appendArc(radius, false, centerX - radius, centerY);
+            mOut.append("Z\"");
+            return;
+        }
+
+        double start = Math.toRadians(startAngle);
+        double end = Math.toRadians(startAngle + sweepAngle);
+        mOut.append('M');
+        appendPoint(centerX, centerY);
+        mOut.append('L');
+        appendPoint(centerX + radius * (float) Math.cos(start), centerY + radius * (float) Math.sin(start));
+        appendArc(radius, sweepAngle > 180, centerX + radius * (float) Math.cos(end), centerY + radius * (float) Math.sin(end));
+        mOut.append("Z\"");
+    }
+
+    /**
+     * A clockwise arc to the point
+     */
+    private void appendArc(float radius, boolean largeArc, float x, float y) {
+        mOut.append('A');
+        appendNumber(radius);
+        mOut.append(',');
+        appendNumber(radius);
+        mOut.append(largeArc ? " 0 1,1 " : " 0 0,1 ");
+        appendPoint(x, y);
+    }
+
+    private void appendPoint(float x, float y) {
+        appendNumber(x);
+        mOut.append(',');
+        appendNumber(y);
+        mOut.append(' ');
+    }
+
+    private String appendGradient(float y0, int color0, float y1, int color1) {
+        String id = "g" + mGradientCount++;
+        mOut.append("<linearGradient id=\"").append(id).append("\" gradientUnits=\"userSpaceOnUse\" x1=\"0\" y1=\"");
+        appendNumber(y0);
+        mOut.append("\" x2=\"0\" y2=\"");
+        appendNumber(y1);
+        mOut.append("\"><stop offset=\"0\"");
+        appendColor(" stop-color", color0);
+        mOut.append("/><stop offset=\"1\"");
+        appendColor(" stop-color", color1);
+        mOut.append("/></linearGradient>\n");
+        return id;
+    }
+
+    /**
+     * Strokes have round caps, like the paints of line and bar items
+     */
+    private void appendStroke(int color, float strokeWidth) {
+        appendColor(" stroke", color);
+        mOut.append(" stroke-width=\"");
+        appendNumber(strokeWidth);
+        mOut.append("\" stroke-linecap=\"round\"");
+    }
+
+    private void appendFill(int color) {
+        appendColor(" fill", color);
+    }
+
+    /**
+     * Appends e.g. fill="#ff0000", and the opacity if the color isn't opaque
+     * @param attribute - name of the attribute, with a leading space
+     */
+    private void appendColor(String attribute, int color) {
+        mOut.append(attribute).append("=\"#");
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            mOut.append(Character.forDigit((color >> shift) & 0xF, 16));
+        }
+        mOut.append('"');
+
+        int alpha = color >>> 24;
+        if (alpha != 0xFF) {
+            String opacity = attribute.equals(" stop-color") ? " stop-opacity" : attribute + "-opacity";
+            mOut.append(opacity).append("=\"");
+            appendNumber(alpha / 255f);
+            mOut.append('"');
+        }
+    }
+
+    /**
+     * Appends the number rounded to 2 decimal places, without trailing zeros
+     */
+    private void appendNumber(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            mOut.append('0');
+            return;
+        }
+        long hundredths = Math.round(value * 100.0);
+        if (hundredths < 0) {
+            mOut.append('-');
+            hundredths = -hundredths;
+        }
+        mOut.append(hundredths / 100);
+        int fraction = (int) (hundredths % 100);
+        if (fraction != 0) {
+            mOut.append('.').append(fraction / 10);
+            if (fraction % 10 != 0) mOut.append(fraction % 10);
+        }
+    }
+
+    private void appendEscaped(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    mOut.append("&lt;");
+                    break;
+                case '>':
+                    mOut.append("&gt;");
+                    break;
+                case '&':
+                    mOut.append("&amp;");
+                    break;
+                case '"':
+                    mOut.append("&quot;");
+                    break;
+                default:
+                    mOut.append(c);
+            }
+        }
+    }
+}
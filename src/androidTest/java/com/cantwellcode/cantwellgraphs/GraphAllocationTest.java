@@ -0,0 +1,183 @@
+package com.cantwellcode.cantwellgraphs;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Redrawing a graph that has not changed must not allocate
+ *
+ * The allocations are counted by RenderMetrics (Debug.getThreadAllocCount), which needs a device or an emulator,
+ * and the frames are drawn on the main thread, like they are in an app
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+@RunWith(AndroidJUnit4.class)
+public class GraphAllocationTest {
+
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 400;
+    private static final int WARM_UP_FRAMES = 3;
+    private static final int FRAMES = 20;
+
+    private Graph mGraph;
+    private AllocatingItem mProbe;
+    private Canvas mCanvas;
+    private RenderMetrics mMetrics;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mGraph = createGraph();
+                mProbe = new AllocatingItem();
+                mGraph.addGraphItem(mProbe);
+                mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+                mMetrics = new RenderMetrics();
+                mGraph.setRenderMetrics(mMetrics);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mMetrics.enableAllocationCounting(false);
+        if (mExecutor != null) mExecutor.shutdown();
+    }
+
+    @Test
+    public void allocationsInAFrameAreCounted() {
+        /* Otherwise the runtime doesn't count allocations, and the other tests can't fail */
+        mProbe.allocate = true;
+        assertTrue(countFrameAllocations() >= 1);
+    }
+
+    @Test
+    public void steadyStateRedrawDoesNotAllocate() {
+        assertEquals(0, countFrameAllocations());
+    }
+
+    @Test
+    public void steadyStateRedrawWithLabelsDoesNotAllocate() {
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mGraph.displayYLabels(true);
+            }
+        });
+        assertEquals(0, countFrameAllocations());
+    }
+
+    @Test
+    public void steadyStateRedrawWithParallelLayoutDoesNotAllocate() {
+        mExecutor = Executors.newFixedThreadPool(2);
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mGraph.setParallelLayoutExecutor(mExecutor);
+            }
+        });
+        assertEquals(0, countFrameAllocations());
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private Graph createGraph() {
+        Graph graph = new Graph(InstrumentationRegistry.getTargetContext());
+
+        float[] values = new float[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.sin(i / 100.0) * 50 + 50;
+        }
+        LineItem line = new LineItem(new FloatSeries(values), FillType.GRADIENT);
+        line.setGradientFillColor(Color.BLUE, Color.TRANSPARENT);
+        graph.addGraphItem(line);
+
+        LineItem smoothed = new LineItem(new FloatSeries(values), FillType.SOLID);
+        smoothed.setSmoothed(true);
+        smoothed.setDownsampleType(DownsampleType.LTTB);
+        graph.addGraphItem(smoothed);
+
+        for (int i = 0; i < 4; i++) {
+            graph.addGraphItem(new BarItem(10 * (i + 1), i % 2 == 0 ? FillType.SOLID : FillType.NONE));
+        }
+
+        /* Sizes the graph, like a layout pass would */
+        graph.layout(0, 0, WIDTH, HEIGHT);
+        return graph;
+    }
+
+    /**
+     * Draw a few frames so that every buffer has grown to its size, then count the allocations of the next frames
+     * @return the most objects allocated in a single frame
+     */
+    private int countFrameAllocations() {
+        final int[] result = new int[2];
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < WARM_UP_FRAMES; i++) {
+                    mGraph.onDraw(mCanvas);
+                }
+
+                mMetrics.enableAllocationCounting(true);
+                mMetrics.reset();
+                for (int i = 0; i < FRAMES; i++) {
+                    mGraph.onDraw(mCanvas);
+                }
+                result[0] = mMetrics.getMaxAllocationCount();
+                result[1] = (int) mMetrics.getFrameCount();
+            }
+        });
+        assertEquals(FRAMES, result[1]);
+        return result[0];
+    }
+
+    private static void runOnMainThread(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+
+    /**
+     * An item that draws nothing, but allocates in every frame when asked to
+     */
+    private static class AllocatingItem extends GraphItem {
+
+        boolean allocate;
+        Object allocated;
+
+        @Override
+        void init() {
+        }
+
+        @Override
+        protected void layoutItem() {
+        }
+
+        @Override
+        protected void drawItem(Canvas canvas) {
+            if (allocate) allocated = new Object();
+        }
+
+        @Override
+        protected void computeStats() {
+            setStats(Float.NaN, Float.NaN);
+        }
+    }
+}
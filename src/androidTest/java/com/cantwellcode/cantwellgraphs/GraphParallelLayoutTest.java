@@ -0,0 +1,117 @@
+package com.cantwellcode.cantwellgraphs;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.RectF;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * With a parallel layout executor, only items with changes are laid out, and appended values are changes
+ * even though they don't dirty the layout
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+@RunWith(AndroidJUnit4.class)
+public class GraphParallelLayoutTest {
+
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 400;
+
+    private ExecutorService mExecutor;
+    private Graph mGraph;
+    private LineItem mLine;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        mExecutor = Executors.newFixedThreadPool(2);
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mGraph = new Graph(InstrumentationRegistry.getTargetContext());
+                mGraph.setParallelLayoutExecutor(mExecutor);
+
+                /* The bounds don't move when values are appended, so the layout stays clean */
+                mGraph.setYBaseValue(0);
+                mGraph.setYTopValue(100);
+
+                mLine = new LineItem(new FloatSeries(new float[] {10, 40, 20, 30}), FillType.SOLID);
+                mLine.setWindowSize(100);
+                mGraph.addGraphItem(mLine);
+                mGraph.addGraphItem(new LineItem(new FloatSeries(new float[] {50, 60, 70}), FillType.NONE));
+
+                mGraph.layout(0, 0, WIDTH, HEIGHT);
+                mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    @Test
+    public void appendedValuesAreDrawn() {
+        float[] rights = drawAppended(new Runnable() {
+            @Override
+            public void run() {
+                mLine.appendAll(new float[] {50, 60});
+            }
+        });
+        assertTrue(rights[1] > rights[0]);
+    }
+
+    @Test
+    public void valuesAddedToTheListAreDrawn() {
+        float[] rights = drawAppended(new Runnable() {
+            @Override
+            public void run() {
+                mLine.getValues().add(50f);
+            }
+        });
+        assertTrue(rights[1] > rights[0]);
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    /**
+     * Draw the graph before and after appending values to the line
+     * @return the right edge of the line in each frame
+     */
+    private float[] drawAppended(final Runnable append) {
+        final float[] rights = new float[2];
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                RectF bounds = new RectF();
+                mGraph.onDraw(mCanvas);
+                mLine.getItemBounds(bounds);
+                rights[0] = bounds.right;
+
+                append.run();
+                mGraph.onDraw(mCanvas);
+                mLine.getItemBounds(bounds);
+                rights[1] = bounds.right;
+            }
+        });
+        return rights;
+    }
+
+    private static void runOnMainThread(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
@@ -0,0 +1,166 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * The values of the y labels and where they are drawn, without the Android framework
+ *
+ * The labels are "nice" ticks: multiples of the smallest step of 1, 2 or 5 times a power of ten that keeps the
+ * labels at least LABEL_SPACING text sizes apart. The ticks stay between the min and max value, and are drawn at
+ * the same height as the values they label
+ * The arrays are reused, and only grow with the number of ticks
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class AxisLayout {
+
+    // Labels are at least this many text sizes apart
+    static final float LABEL_SPACING = 2;
+
+    // Ticks have at least 1 decimal place, and at most as many as a float can tell apart
+    static final int MIN_DECIMALS = 1;
+    static final int MAX_DECIMALS = 7;
+
+    // Tolerance when rounding the ends of the range to a tick, so that rounding errors don't drop an end tick
+    private static final double EPSILON = 1e-6;
+
+    /* Ticks, set by layoutYLabels */
+    int count;
+    double step;                            // 0 if there are no nice ticks, and the labels are the min and max
+    int decimals;                           // decimal places needed to tell the ticks apart
+    float[] values = new float[0];          // from the bottom label to the top label
+    float[] baselines = new float[0];
+
+    /**
+     * Calculate the y labels, from the bottom label to the top label
+     * The baselines are calculated every time, the values only change when the range or the height changes
+     * @param minY                 - value at the bottom of the graph
+     * @param maxY                 - value at the top of the graph
+     * @param height               - height of the graph
+     * @param topPaddingEnabled
+     * @param bottomPaddingEnabled
+     * @param descent              - descent of the label text, which keeps the labels inside the graph without padding
+     * @param textSize             - size of the label text, which limits how close the labels can be
+     * @return true if the values or decimals of the labels changed, so their text has to be formatted again
+     */
+    boolean layoutYLabels(float minY, float maxY, int height, boolean topPaddingEnabled, boolean bottomPaddingEnabled,
+                          float descent, float textSize) {
+        /* The labels are kept inside the graph, by the padding or by the size of the text */
+        float bottomBaseline = bottomPaddingEnabled ? height * 9 / 10 : height - descent;
+        float topBaseline = topPaddingEnabled ? height / 10 : 3 * descent;
+
+        float minYCoord = Projection.getMinYCoordinate(height, bottomPaddingEnabled);
+        float maxYCoord = Projection.getMaxYCoordinate(height, topPaddingEnabled);
+        float spacing = Math.max(1, textSize * LABEL_SPACING);
+        boolean changed = computeTicks(minY, maxY, (maxYCoord - minYCoord) / spacing);
+
+        /* Each label is drawn at the height of its value */
+        for (int i = 0; i < count; i++) {
+            float y = Projection.projectY(values[i], minY, maxY, height, minYCoord, maxYCoord);
+            baselines[i] = Math.max(topBaseline, Math.min(bottomBaseline, y));
+        }
+        return changed;
+    }
+
+    /**
+     * The smallest nice step that is at least the min step
+     * @param minStep - positive
+     * @return a multiple of 1, 2 or 5 times a power of ten
+     */
+    static double getNiceStep(double minStep) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(minStep)));
+        double fraction = minStep / magnitude;
+
+        /* Rounding errors in log10 can leave the fraction just below 1 or at 10 */
+        if (fraction <= 1 + EPSILON) {
+            return magnitude;
+        } else if (fraction <= 2 + EPSILON) {
+            return 2 * magnitude;
+        } else if (fraction <= 5 + EPSILON) {
+            return 5 * magnitude;
+        }
+        return 10 * magnitude;
+    }
+
+    /**
+     * The decimal places needed to write multiples of a nice step
+     * @param step - from getNiceStep
+     * @return between MIN_DECIMALS and MAX_DECIMALS
+     */
+    static int getDecimals(double step) {
+        int decimals = (int) -Math.floor(Math.log10(step) + EPSILON);
+        return Math.max(MIN_DECIMALS, Math.min(MAX_DECIMALS, decimals));
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    /**
+     * Set the tick values, and tell if they changed
+     * @param maxSteps - how many times the label spacing fits between the min and max value
+     */
+    private boolean computeTicks(float minY, float maxY, float maxSteps) {
+        int oldCount = count;
+        int oldDecimals = decimals;
+        double range = (double) maxY - minY;
+
+        long first = 0;
+        int tickCount = 0;
+        if (range > 0 && !Double.isInfinite(range) && !Float.isInfinite(minY) && maxSteps >= 1) {
+            step = getNiceStep(range / maxSteps);
+            first = getFirstTick(minY, step);
+            tickCount = (int) (getLastTick(maxY, step) - first + 1);
+        }
+
+        boolean changed;
+        if (tickCount >= 2) {
+            decimals = getDecimals(step);
+            count = tickCount;
+            ensureCapacity(count);
+            changed = count != oldCount || decimals != oldDecimals;
+            for (int i = 0; i < count; i++) {
+                changed |= setValue(i, (float) ((first + i) * step));
+            }
+        } else {
+            /* A range that is empty, unbounded, or too short for 2 nice ticks, or a graph too short for the
+               spacing, is labelled with its ends */
+            step = 0;
+            decimals = MIN_DECIMALS;
+            count = minY == maxY ? 1 : 2;
+            ensureCapacity(count);
+            changed = count != oldCount || decimals != oldDecimals;
+            changed |= setValue(0, minY);
+            if (count == 2) changed |= setValue(1, maxY);
+        }
+        return changed;
+    }
+
+    /**
+     * @return the index of the first multiple of the step that is not below the min
+     */
+    private static long getFirstTick(double minY, double step) {
+        return (long) Math.ceil(minY / step - EPSILON);
+    }
+
+    /**
+     * @return the index of the last multiple of the step that is not above the max
+     */
+    private static long getLastTick(double maxY, double step) {
+        return (long) Math.floor(maxY / step + EPSILON);
+    }
+
+    private boolean setValue(int index, float value) {
+        if (Float.compare(value, values[index]) == 0) return false;
+        values[index] = value;
+        return true;
+    }
+
+    private void ensureCapacity(int count) {
+        if (values.length < count) {
+            values = new float[count];
+            baselines = new float[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = Float.NaN;
+            }
+        }
+    }
+}
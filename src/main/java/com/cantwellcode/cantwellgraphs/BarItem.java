@@ -7,7 +7,6 @@ import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.RectF;
 import android.graphics.Shader;
-import android.util.Log;
 
 import java.util.ArrayList;
 
@@ -20,10 +19,11 @@ public class BarItem extends GraphItem {
     private final String LOG = "BarItem";
 
     private float mValue;
-    private int mItemIndex;
-    private int mItemCount;
+    private int mCategory;      // which category along the x axis the bar is in
+    private int mSeriesIndex;   // which bar of its category this is, in the order they were added
 
     private RectF mRect;
+    private final float[] mRectBuffer = new float[4];   // the bar's edges, as laid out by the graph
 
     private Paint mStrokePaint;
     private final String DEFAULT_STROKE_COLOR = "#000000";
@@ -62,24 +62,26 @@ public class BarItem extends GraphItem {
         mTopPaddingEnabled = true;
         mBottomPaddingEnabled = true;
 
-        mItemIndex = 0;
-        mItemCount = 1;
+        mCategory = 0;
+        mSeriesIndex = 0;
+
+        mRect = new RectF();
+        mRectBuffer[BarLayout.RIGHT] = mRectBuffer[BarLayout.LEFT] = Float.NaN;  // not laid out yet
     }
 
     @Override
-    protected void updateItem(int width, int height, float minY, float maxY, int labelWidth) {
-        super.updateItem(width, height, minY, maxY, labelWidth);
-
+    protected void layoutItem() {
         if (mFillType == FillType.GRADIENT) {
             mFillPaint.setShader(new LinearGradient(0, 0, 0, mHeight, mGradientEndColor, mGradientStartColor, Shader.TileMode.CLAMP));
         }
 
-        createRect();
+        float[] r = mRectBuffer;
+        mRect.set(r[BarLayout.LEFT], r[BarLayout.TOP], r[BarLayout.RIGHT], r[BarLayout.BOTTOM]);
     }
 
     @Override
     protected void drawItem(Canvas canvas) {
-        Log.d(LOG, "drawing Item");
+        if (GraphLog.DEBUG) GraphLog.d(LOG, "drawing Item");
         if (hasFill()) {
             // If the rect has a fill, draw the fill
             canvas.drawRect(mRect, mFillPaint);
@@ -89,57 +91,72 @@ public class BarItem extends GraphItem {
     }
 
     /**
-     * For bar items, there is only one value, so min and max both return that value
-     * @return
+     * The bar's rectangle, including half of the stroke that is drawn outside of it
      */
     @Override
-    protected float getMinValue() {
-        return mValue;
+    protected boolean getItemBounds(RectF bounds) {
+        float stroke = mStrokePaint.getStrokeWidth() / 2;
+        bounds.set(mRect.left - stroke, mRect.top - stroke, mRect.right + stroke, mRect.bottom + stroke);
+        return true;
     }
 
     /**
-     * For bar items, there is only one value, so max and min both return that value
-     * @return
+     * For bar items, there is only one value, so min and max are both that value
      */
     @Override
-    protected float getMaxValue() {
-        return mValue;
+    protected void computeStats() {
+        setStats(mValue, mValue);
     }
 
     /**
-     * Which bar number is this in the graph
-     * @param itemIndex
+     * Bars are not laid out along x, so the viewport does not affect them
      */
-    protected void setItemIndex(int itemIndex) {
-        mItemIndex = itemIndex;
+    @Override
+    protected void setViewport(float start, float end) {
     }
 
     /**
-     * How many total bars are there in the graph
-     * @param itemCount
+     * Which category along the x axis the bar is in. Bars that share a category are grouped or stacked
+     * @param category
      */
-    protected void setItemCount(int itemCount) {
-        mItemCount = itemCount;
+    protected void setCategory(int category) {
+        mCategory = category;
+    }
+
+    protected int getCategory() {
+        return mCategory;
     }
 
     /**
-     * After update is called and the needed values are known,
-     * We create the rectangle, in preparation to be drawn
+     * Which bar of its category this is, set by the graph while it finds the y bounds
+     * @param seriesIndex
      */
-    private void createRect() {
-        float maxX = mItemCount;
+    void setSeriesIndex(int seriesIndex) {
+        mSeriesIndex = seriesIndex;
+    }
 
-        // ratio used for normalizing the coordinates to the graph space
-        float maxYCoordinate = mTopPaddingEnabled ? mHeight * 9 / 10 : mHeight;
-        float minYCoordinate = mBottomPaddingEnabled ? mHeight / 10 : 0;
-        float dX = (mWidth - mLabelWidth) / maxX;
-        float leftX = mItemIndex == 0 ? mLabelWidth : mLabelWidth + (mItemIndex * dX);
-        float rightX = leftX + dX;
-        float topY = getYCoordinate(mValue, minYCoordinate, maxYCoordinate);
+    int getSeriesIndex() {
+        return mSeriesIndex;
+    }
 
-        Log.d(LOG, String.format("%.1f  %.1f  %.1f  %.1f", leftX, topY, rightX, 0.0));
+    protected float getValue() {
+        return mValue;
+    }
 
-        mRect = new RectF(leftX, topY, rightX, mHeight);
+    /**
+     * The graph lays out every bar at once (see BarLayout.layoutSeries), and passes each bar its rectangle
+     * The bar only rebuilds its geometry if the rectangle moved
+     * @param rects
+     * @param offset - index of the bar's left edge in rects
+     */
+    void setRect(float[] rects, int offset) {
+        float[] r = mRectBuffer;
+        if (r[BarLayout.LEFT] != rects[offset + BarLayout.LEFT] || r[BarLayout.TOP] != rects[offset + BarLayout.TOP]
+                || r[BarLayout.RIGHT] != rects[offset + BarLayout.RIGHT]
+                || r[BarLayout.BOTTOM] != rects[offset + BarLayout.BOTTOM]) {
+            System.arraycopy(rects, offset, r, 0, 4);
+            invalidateLayout();
+        }
     }
 
     /**
@@ -174,6 +191,7 @@ public class BarItem extends GraphItem {
     public void setGradientFillColor(int startColor, int endColor) {
         mGradientStartColor = startColor;
         mGradientEndColor = endColor;
+        invalidateLayout();
     }
 
     protected boolean hasFill() {
@@ -0,0 +1,109 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * Where bars are drawn, without the Android framework
+ *
+ * The graph's width after the labels is split evenly between the bars, in the order they were added,
+ * and each bar goes from the bottom of the graph up to its projected value
+ *
+ * Several series of bars are laid out by category in a single pass: grouped bars split the category's width,
+ * and stacked bars keep a running sum per category, so that each bar starts where the one below it ended
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class BarLayout {
+
+    /* Offsets of a bar's edges in a rect array */
+    static final int LEFT = 0;
+    static final int TOP = 1;
+    static final int RIGHT = 2;
+    static final int BOTTOM = 3;
+
+    private BarLayout() {}
+
+    /**
+     * Calculate the rectangles of every bar of several series, in one pass
+     * Values and rects are ordered by series, then category: the bar of series s in category c is at
+     * index s * categoryCount + c, and its edges start at rects[4 * index]
+     * @param values        - at least seriesCount * categoryCount values
+     * @param seriesCount
+     * @param categoryCount
+     * @param mode
+     * @param width         - width of the graph
+     * @param height        - height of the graph
+     * @param labelWidth
+     * @param minY          - min value of the graph
+     * @param maxY          - max value of the graph
+     * @param topPaddingEnabled
+     * @param bottomPaddingEnabled
+     * @param rects         - at least 4 * seriesCount * categoryCount floats, set to the edges of each bar
+     */
+    static void layoutSeries(float[] values, int seriesCount, int categoryCount, BarMode mode, int width, int height,
+                             float labelWidth, float minY, float maxY, boolean topPaddingEnabled,
+                             boolean bottomPaddingEnabled, float[] rects) {
+        if (seriesCount == 0 || categoryCount == 0) return;
+
+        float maxYCoordinate = Projection.getMaxYCoordinate(height, topPaddingEnabled);
+        float minYCoordinate = Projection.getMinYCoordinate(height, bottomPaddingEnabled);
+        float dX = (width - labelWidth) / categoryCount;
+        boolean stacked = mode == BarMode.STACKED;
+        float barWidth = stacked ? dX : dX / seriesCount;
+
+        for (int c = 0; c < categoryCount; c++) {
+            float categoryLeft = labelWidth + c * dX;
+            float sum = 0;
+            float bottom = height;
+
+            for (int s = 0; s < seriesCount; s++) {
+                int index = s * categoryCount + c;
+                float value = values[index];
+                int r = 4 * index;
+
+                float leftX = stacked ? categoryLeft : categoryLeft + s * barWidth;
+                rects[r + LEFT] = leftX;
+                rects[r + RIGHT] = leftX + barWidth;
+
+                if (stacked) {
+                    sum += value;
+                    float top = Projection.projectY(sum, minY, maxY, height, minYCoordinate, maxYCoordinate);
+                    rects[r + TOP] = top;
+                    rects[r + BOTTOM] = bottom;
+                    bottom = top;
+                } else {
+                    rects[r + TOP] = Projection.projectY(value, minY, maxY, height, minYCoordinate, maxYCoordinate);
+                    rects[r + BOTTOM] = height;
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the range of values that the bars of several series reach, in one pass
+     * For stacked bars this is the range of the running sums, so that the tallest stack fits
+     * @param values
+     * @param seriesCount
+     * @param categoryCount
+     * @param mode
+     * @param range - set to the min and max, or NaN if there are no bars
+     */
+    static void findSeriesRange(float[] values, int seriesCount, int categoryCount, BarMode mode, float[] range) {
+        float min = Float.NaN;
+        float max = Float.NaN;
+        boolean stacked = mode == BarMode.STACKED;
+
+        for (int c = 0; c < categoryCount; c++) {
+            float sum = 0;
+            for (int s = 0; s < seriesCount; s++) {
+                float value = values[s * categoryCount + c];
+                if (stacked) {
+                    sum += value;
+                    value = sum;
+                }
+                if (Float.isNaN(min) || value < min) min = value;
+                if (Float.isNaN(max) || value > max) max = value;
+            }
+        }
+        range[0] = min;
+        range[1] = max;
+    }
+}
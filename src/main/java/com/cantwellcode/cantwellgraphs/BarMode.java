@@ -0,0 +1,13 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * How bars of several series that share a category are laid out
+ *
+ * GROUPED - side by side, each series getting an equal part of the category's width
+ * STACKED - on top of each other, each series starting where the one before it ended (values should not be negative)
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public enum BarMode {
+    GROUPED, STACKED
+}
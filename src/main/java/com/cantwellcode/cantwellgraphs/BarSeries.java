@@ -0,0 +1,294 @@
+package com.cantwellcode.cantwellgraphs;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+/**
+ * Many bars in a single graph item, e.g. a histogram with thousands of bins, or several series of bars
+ *
+ * The values are kept in one primitive array, ordered by series then category, and the graph's width after the
+ * labels is split evenly between the categories. The bars of a category are grouped side by side or stacked
+ * on top of each other (see BarMode)
+ * Each series is drawn as a single path, with a fill paint per series and a stroke paint shared by all of them,
+ * so drawing costs one or two calls per series no matter how many bars there are
+ *
+ * A bar series takes up the whole width of the graph, so it should not be mixed with BarItems
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public class BarSeries extends GraphItem {
+    private final String LOG = "BarSeries";
+
+    private final int mSeriesCount;
+    private final int mCategoryCount;
+    private final float[] mValues;      // value of series s in category c at s * categoryCount + c
+    private BarMode mMode;
+
+    /* Geometry, rebuilt by layoutItem */
+    private final float[] mRects;       // edges of each bar, see BarLayout.layoutSeries
+    private final float[] mRange;       // min and max that the bars reach, see BarLayout.findSeriesRange
+    private Path[] mPaths;              // every bar of a series
+    private RectF mBounds;              // union of every bar
+
+    private Paint[] mFillPaints;
+    private int[] mGradientStartColors;
+    private int[] mGradientEndColors;
+    private final String DEFAULT_FILL_START_COLOR = "#FFFFFF";
+    private final String DEFAULT_FILL_END_COLOR = "#000000";
+
+    private Paint mStrokePaint;
+    private final String DEFAULT_STROKE_COLOR = "#000000";
+    private final float DEFAULT_STROKE_WIDTH = 0;   // thousands of bars are easier to read without a stroke
+
+    /**
+     * A single series of bars, e.g. a histogram
+     * @param values   - copied, one bar per value
+     * @param fillType
+     */
+    public BarSeries(float[] values, FillType fillType) {
+        this(1, values.length, fillType);
+        setValues(0, values);
+    }
+
+    /**
+     * Several series of bars, with every value set to 0
+     * @param seriesCount   - number of bars in each category
+     * @param categoryCount - number of categories along the x axis
+     * @param fillType
+     */
+    public BarSeries(int seriesCount, int categoryCount, FillType fillType) {
+        if (seriesCount <= 0 || categoryCount < 0) {
+            throw new IllegalArgumentException("seriesCount must be positive and categoryCount must not be negative");
+        }
+        mSeriesCount = seriesCount;
+        mCategoryCount = categoryCount;
+        mValues = new float[seriesCount * categoryCount];
+        mRects = new float[4 * seriesCount * categoryCount];
+        mRange = new float[2];
+        mFillType = fillType;
+        init();
+    }
+
+    /**
+     * Sets default values
+     */
+    @Override
+    protected void init() {
+        mMode = BarMode.GROUPED;
+
+        /* Initialize the stroke paint, shared by every series */
+        mStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mStrokePaint.setStyle(Paint.Style.STROKE);
+        setStrokeColor(Color.parseColor(DEFAULT_STROKE_COLOR));
+        setStrokeWidth(DEFAULT_STROKE_WIDTH);
+
+        /* Initialize a fill paint and path for each series */
+        mFillPaints = new Paint[mSeriesCount];
+        mGradientStartColors = new int[mSeriesCount];
+        mGradientEndColors = new int[mSeriesCount];
+        mPaths = new Path[mSeriesCount];
+        for (int s = 0; s < mSeriesCount; s++) {
+            mFillPaints[s] = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+            mPaths[s] = new Path();
+            setSolidFillColor(s, Color.parseColor(DEFAULT_FILL_END_COLOR));
+            setGradientFillColor(s, Color.parseColor(DEFAULT_FILL_START_COLOR), Color.parseColor(DEFAULT_FILL_END_COLOR));
+        }
+
+        mTopPaddingEnabled = true;
+        mBottomPaddingEnabled = true;
+
+        mBounds = new RectF();
+    }
+
+    @Override
+    protected void layoutItem() {
+        if (mFillType == FillType.GRADIENT) {
+            for (int s = 0; s < mSeriesCount; s++) {
+                mFillPaints[s].setShader(new LinearGradient(0, 0, 0, mHeight, mGradientEndColors[s],
+                        mGradientStartColors[s], Shader.TileMode.CLAMP));
+            }
+        }
+
+        BarLayout.layoutSeries(mValues, mSeriesCount, mCategoryCount, mMode, mWidth, mHeight, mLabelWidth,
+                mMinY, mMaxY, mTopPaddingEnabled, mBottomPaddingEnabled, mRects);
+        createPaths();
+    }
+
+    @Override
+    protected void drawItem(Canvas canvas) {
+        if (GraphLog.DEBUG) GraphLog.d(LOG, "drawing Item");
+        boolean stroke = mStrokePaint.getStrokeWidth() > 0;
+        for (int s = 0; s < mSeriesCount; s++) {
+            if (hasFill()) canvas.drawPath(mPaths[s], mFillPaints[s]);
+            if (stroke) canvas.drawPath(mPaths[s], mStrokePaint);
+        }
+    }
+
+    /**
+     * The union of the bars, including half of the stroke that is drawn outside of them
+     */
+    @Override
+    protected boolean getItemBounds(RectF bounds) {
+        if (mBounds.isEmpty()) return false;
+        float stroke = mStrokePaint.getStrokeWidth() / 2;
+        bounds.set(mBounds.left - stroke, mBounds.top - stroke, mBounds.right + stroke, mBounds.bottom + stroke);
+        return true;
+    }
+
+    /**
+     * For stacked bars, the max is the tallest stack
+     */
+    @Override
+    protected void computeStats() {
+        BarLayout.findSeriesRange(mValues, mSeriesCount, mCategoryCount, mMode, mRange);
+        setStats(mRange[0], mRange[1]);
+    }
+
+    /**
+     * Bars are not laid out along x, so the viewport does not affect them
+     */
+    @Override
+    protected void setViewport(float start, float end) {
+    }
+
+    /**
+     * Set the value of a single bar
+     * @param series
+     * @param category
+     * @param value
+     */
+    public void setValue(int series, int category, float value) {
+        mValues[getIndex(series, category)] = value;
+        invalidateStats();
+        invalidateLayout();
+    }
+
+    /**
+     * Set every value of a series
+     * @param series
+     * @param values - copied, one value per category
+     */
+    public void setValues(int series, float[] values) {
+        if (values.length != mCategoryCount) {
+            throw new IllegalArgumentException("Expected " + mCategoryCount + " values, got " + values.length);
+        }
+        System.arraycopy(values, 0, mValues, getIndex(series, 0), mCategoryCount);
+        invalidateStats();
+        invalidateLayout();
+    }
+
+    public float getValue(int series, int category) {
+        return mValues[getIndex(series, category)];
+    }
+
+    public int getSeriesCount() {
+        return mSeriesCount;
+    }
+
+    public int getCategoryCount() {
+        return mCategoryCount;
+    }
+
+    /**
+     * Group the bars of a category side by side, or stack them on top of each other
+     * @param mode
+     */
+    public void setBarMode(BarMode mode) {
+        if (mMode != mode) {
+            mMode = mode;
+            invalidateStats();
+            invalidateLayout();
+        }
+    }
+
+    /**
+     * Set the color of the stroke, for every series
+     * @param color
+     */
+    public void setStrokeColor(int color) {
+        mStrokePaint.setColor(color);
+    }
+
+    /**
+     * Set the width of the stroke, for every series
+     * @param width - 0 to not draw a stroke
+     */
+    public void setStrokeWidth(float width) {
+        mStrokePaint.setStrokeWidth(width);
+    }
+
+    /**
+     * Set the inside fill color of the bars of a series
+     * @param series
+     * @param color
+     */
+    public void setSolidFillColor(int series, int color) {
+        mFillPaints[series].setColor(color);
+    }
+
+    /**
+     * Set the colors of the gradient for the bars of a series
+     * @param series
+     * @param startColor - the color at the bottom
+     * @param endColor - the color at the top
+     */
+    public void setGradientFillColor(int series, int startColor, int endColor) {
+        mGradientStartColors[series] = startColor;
+        mGradientEndColors[series] = endColor;
+        invalidateLayout();
+    }
+
+    protected boolean hasFill() {
+        return mFillType != FillType.NONE;
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private int getIndex(int series, int category) {
+        if (series < 0 || series >= mSeriesCount || category < 0 || category >= mCategoryCount) {
+            throw new IndexOutOfBoundsException("Series: " + series + ", Category: " + category);
+        }
+        return series * mCategoryCount + category;
+    }
+
+    /**
+     * Add the rectangle of every bar to the path of its series, skipping bars without height
+     */
+    private void createPaths() {
+        float left = Float.POSITIVE_INFINITY;
+        float top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY;
+        float bottom = Float.NEGATIVE_INFINITY;
+
+        for (int s = 0; s < mSeriesCount; s++) {
+            Path path = mPaths[s];
+            path.rewind();
+            for (int c = 0; c < mCategoryCount; c++) {
+                int r = 4 * (s * mCategoryCount + c);
+                float barTop = Math.min(mRects[r + BarLayout.TOP], mRects[r + BarLayout.BOTTOM]);
+                float barBottom = Math.max(mRects[r + BarLayout.TOP], mRects[r + BarLayout.BOTTOM]);
+                if (barTop == barBottom) continue;
+
+                path.addRect(mRects[r + BarLayout.LEFT], barTop, mRects[r + BarLayout.RIGHT], barBottom,
+                        Path.Direction.CW);
+                if (mRects[r + BarLayout.LEFT] < left) left = mRects[r + BarLayout.LEFT];
+                if (mRects[r + BarLayout.RIGHT] > right) right = mRects[r + BarLayout.RIGHT];
+                if (barTop < top) top = barTop;
+                if (barBottom > bottom) bottom = barBottom;
+            }
+        }
+
+        if (left <= right) {
+            mBounds.set(left, top, right, bottom);
+        } else {
+            mBounds.setEmpty();
+        }
+    }
+}
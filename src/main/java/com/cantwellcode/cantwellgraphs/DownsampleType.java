@@ -0,0 +1,14 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * How a LineItem reduces the number of points it draws when it has more values than can be seen
+ *
+ * NONE    - every value is drawn
+ * LTTB    - Largest-Triangle-Three-Buckets, keeps the points that best preserve the shape of the line
+ * MIN_MAX - keeps the lowest and highest point in each pixel column, so no peak is ever lost
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public enum DownsampleType {
+    NONE, LTTB, MIN_MAX
+}
@@ -0,0 +1,125 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * Chooses which points of a line to draw when there are far more points than pixels
+ *
+ * Both algorithms work on coordinates that have already been projected to the graph,
+ * and write the indices of the chosen points (in ascending order) into an output array
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class Downsampler {
+
+    private Downsampler() {}
+
+    /**
+     * Largest-Triangle-Three-Buckets
+     * Splits the points into buckets, and from each bucket keeps the point that forms the largest
+     * triangle with the previously kept point and the average of the next bucket
+     * The first and last points are always kept
+     *
+     * @param x - x coordinates, ascending
+     * @param y - y coordinates
+     * @param count - number of points
+     * @param threshold - maximum number of points to keep
+     * @param out - indices of the kept points, must hold at least min(count, threshold) values
+     * @return the number of kept points
+     */
+    static int lttb(float[] x, float[] y, int count, int threshold, int[] out) {
+        if (threshold >= count || threshold < 3) {
+            for (int i = 0; i < count; i++) {
+                out[i] = i;
+            }
+            return count;
+        }
+
+        int kept = 0;
+        // Bucket size, leaving out the first and last point
+        double every = (double) (count - 2) / (threshold - 2);
+
+        int a = 0;
+        out[kept++] = a;
+
+        for (int i = 0; i < threshold - 2; i++) {
+
+            /* Average point of the next bucket */
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, count);
+            float avgX = 0;
+            float avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int avgLength = avgEnd - avgStart;
+            avgX /= avgLength;
+            avgY /= avgLength;
+
+            /* Point in this bucket forming the largest triangle */
+            int rangeStart = (int) Math.floor(i * every) + 1;
+            int rangeEnd = (int) Math.floor((i + 1) * every) + 1;
+            float ax = x[a];
+            float ay = y[a];
+            float maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                float area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+
+            out[kept++] = next;
+            a = next;
+        }
+
+        out[kept++] = count - 1;
+        return kept;
+    }
+
+    /**
+     * Min/Max per pixel column
+     * Keeps the lowest and highest point in each pixel column, in the order they appear
+     * The first and last points are always kept
+     *
+     * @param x - x coordinates, ascending
+     * @param y - y coordinates
+     * @param count - number of points
+     * @param out - indices of the kept points, must hold at least min(count, 2 * columns + 2) values
+     * @return the number of kept points
+     */
+    static int minMax(float[] x, float[] y, int count, int[] out) {
+        if (count == 0) return 0;
+
+        int kept = 0;
+        out[kept++] = 0;
+
+        int i = 1;
+        while (i < count - 1) {
+            int column = (int) x[i];
+            int minIndex = i;
+            int maxIndex = i;
+
+            /* Find the min and max of all the points in this column */
+            i++;
+            while (i < count - 1 && (int) x[i] == column) {
+                if (y[i] < y[minIndex]) minIndex = i;
+                if (y[i] > y[maxIndex]) maxIndex = i;
+                i++;
+            }
+
+            if (minIndex == maxIndex) {
+                out[kept++] = minIndex;
+            } else {
+                out[kept++] = Math.min(minIndex, maxIndex);
+                out[kept++] = Math.max(minIndex, maxIndex);
+            }
+        }
+
+        if (count > 1) {
+            out[kept++] = count - 1;
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,129 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * A histogram of durations in nanoseconds, with percentiles, that never allocates after it is created
+ *
+ * Durations are counted in buckets: each power of two is split into 8 buckets, so a percentile is
+ * within 12.5% of the real duration. Durations below 8 nanoseconds are counted exactly
+ * The min, max and mean are exact. Not thread safe, record from one thread at a time
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public final class DurationHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mSum;
+    private long mMin;
+    private long mMax;
+
+    public DurationHistogram() {
+        reset();
+    }
+
+    /**
+     * Count a duration
+     * @param nanos - negative durations are counted as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        mCounts[getBucket(nanos)]++;
+        mCount++;
+        mSum += nanos;
+        if (nanos < mMin) mMin = nanos;
+        if (nanos > mMax) mMax = nanos;
+    }
+
+    /**
+     * Forget every duration that was recorded
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts[i] = 0;
+        }
+        mCount = 0;
+        mSum = 0;
+        mMin = Long.MAX_VALUE;
+        mMax = 0;
+    }
+
+    /**
+     * @return number of durations recorded
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return shortest duration, or 0 if nothing was recorded
+     */
+    public long getMin() {
+        return mCount == 0 ? 0 : mMin;
+    }
+
+    /**
+     * @return longest duration, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * @return mean duration, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        return mCount == 0 ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * The duration that the given percentage of the recorded durations are shorter than or equal to
+     * e.g. getPercentile(99) is the 99th percentile
+     * @param percentile - from 0 to 100
+     * @return the upper end of the bucket the percentile falls in, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (mCount == 0) return 0;
+        if (percentile < 0) percentile = 0;
+        if (percentile > 100) percentile = 100;
+
+        /* The rank of the duration, counting from 1 */
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * mCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                return Math.min(getBucketEnd(i), mMax);
+            }
+        }
+        return mMax;
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    /**
+     * The first 8 buckets are exact, then each power of two has 8 buckets of equal width
+     */
+    private static int getBucket(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * The largest duration counted in the bucket
+     */
+    private static long getBucketEnd(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long start = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return start + width - 1;
+    }
+}
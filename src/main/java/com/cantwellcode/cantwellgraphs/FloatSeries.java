@@ -0,0 +1,603 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A growable series of primitive float values, with an optional parallel array of x values
+ *
+ * LineItem renders directly from a FloatSeries, so large data sets never have to be boxed
+ * If x values are used, they must be added in ascending order
+ *
+ * A series can also be given a window size, in which case it becomes a fixed capacity ring buffer
+ * that only keeps the most recent values. This is meant for real time data that is appended continuously
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public class FloatSeries implements SeriesDataSource {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private float[] mValues;    // y values
+    private float[] mXValues;   // optional x values, parallel to mValues (null if not used)
+    private int mHead;          // position of the first value in the arrays, only non-zero when there is a window
+    private int mSize;
+
+    private int mWindowSize;    // maximum number of values kept, or 0 if there is no maximum
+    private long mEvictedCount; // total number of values that have been dropped to stay within the window
+    private int mModCount;      // number of changes other than appending and evicting values
+
+    /* For a copy made by copyFrom, the series it copies and its mod count at the time, see updateFrom */
+    private FloatSeries mCopySource;
+    private int mCopyModCount;
+
+    private List<Listener> mListeners;  // items that cache information about this series
+
+    /**
+     * Create an empty series without x values
+     */
+    public FloatSeries() {
+        this(DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * Create an empty series
+     * @param initialCapacity - number of values that can be added before the arrays need to grow
+     * @param hasXValues - true if every value will be added with a corresponding x value
+     */
+    public FloatSeries(int initialCapacity, boolean hasXValues) {
+        if (initialCapacity < 1) initialCapacity = 1;
+        mValues = new float[initialCapacity];
+        mXValues = hasXValues ? new float[initialCapacity] : null;
+        mHead = 0;
+        mSize = 0;
+        mListeners = new ArrayList<>(1);
+    }
+
+    /**
+     * Create a series that wraps the given values (the array is used directly, not copied)
+     * @param values
+     */
+    public FloatSeries(float[] values) {
+        this(null, values);
+    }
+
+    /**
+     * Create a series that wraps the given values and x values (the arrays are used directly, not copied)
+     * @param xValues - ascending x values, must be the same length as values
+     * @param values
+     */
+    public FloatSeries(float[] xValues, float[] values) {
+        if (xValues != null && xValues.length != values.length) {
+            throw new IllegalArgumentException("x values and values must be the same length");
+        }
+        mValues = values;
+        mXValues = xValues;
+        mHead = 0;
+        mSize = values.length;
+        mListeners = new ArrayList<>(1);
+    }
+
+    /**
+     * Create a series from a list of boxed values
+     * @param values
+     * @return
+     */
+    public static FloatSeries fromList(List<Float> values) {
+        int size = values.size();
+        float[] array = new float[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = values.get(i);
+        }
+        return new FloatSeries(array);
+    }
+
+    /****************************************
+                    Window
+     ****************************************/
+
+    /**
+     * Only keep the most recent values
+     * Once the series is full, adding a value drops the oldest one, without copying or allocating
+     * If the series already has more values than the window size, the oldest ones are dropped
+     * @param windowSize - maximum number of values, or 0 to keep every value
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize < 0) {
+            throw new IllegalArgumentException("Window size must not be negative");
+        }
+
+        while (windowSize > 0 && mSize > windowSize) {
+            evictOldest();
+        }
+
+        linearize(windowSize > 0 ? windowSize : Math.max(mSize, DEFAULT_CAPACITY));
+        mWindowSize = windowSize;
+        mModCount++;
+    }
+
+    public int getWindowSize() {
+        return mWindowSize;
+    }
+
+    /**
+     * The total number of values that have been dropped from the start of the series to stay within the window
+     * This lets a LineItem know how far its line has scrolled since it was last drawn
+     * @return
+     */
+    public long getEvictedCount() {
+        return mEvictedCount;
+    }
+
+    /****************************************
+                Adding and Removing
+     ****************************************/
+
+    /**
+     * Add a value to the end of the series
+     * @param value
+     */
+    public void add(float value) {
+        if (mXValues != null) {
+            throw new IllegalStateException("This series has x values, use add(x, value)");
+        }
+        makeRoomForAppend(1);
+        mValues[physicalIndex(mSize)] = value;
+        mSize++;
+        notifyAppended(value);
+    }
+
+    /**
+     * Add a value with a corresponding x value to the end of the series
+     * @param x - must not be less than the last x value
+     * @param value
+     */
+    public void add(float x, float value) {
+        if (mXValues == null) {
+            throw new IllegalStateException("This series does not have x values, use add(value)");
+        }
+        makeRoomForAppend(1);
+        int position = physicalIndex(mSize);
+        mXValues[position] = x;
+        mValues[position] = value;
+        mSize++;
+        notifyAppended(value);
+    }
+
+    /**
+     * Add all of the values to the end of the series
+     * @param values
+     */
+    public void addAll(float[] values) {
+        if (mXValues != null) {
+            throw new IllegalStateException("This series has x values, use add(x, value)");
+        }
+        if (mWindowSize > 0) {
+            // Values that would be dropped straight away are skipped
+            int start = Math.max(0, values.length - mWindowSize);
+            for (int i = start; i < values.length; i++) {
+                add(values[i]);
+            }
+            return;
+        }
+        ensureCapacity(mSize + values.length);
+        System.arraycopy(values, 0, mValues, mSize, values.length);
+        mSize += values.length;
+        for (float value : values) {
+            notifyAppended(value);
+        }
+    }
+
+    /**
+     * Insert a value at the given index, shifting the following values to the right
+     * Only available for series without x values or a window
+     * @param index
+     * @param value
+     */
+    public void insert(int index, float value) {
+        if (mXValues != null || mWindowSize > 0) {
+            throw new IllegalStateException("Cannot insert into a series with x values or a window");
+        }
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        ensureCapacity(mSize + 1);
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mValues[index] = value;
+        mSize++;
+        mModCount++;
+        if (index == mSize - 1) {
+            notifyAppended(value);
+        } else {
+            notifyInserted(value);
+        }
+    }
+
+    /**
+     * Remove the value at the given index, shifting the following values to the left
+     * @param index
+     * @return the removed value
+     */
+    public float remove(int index) {
+        checkIndex(index);
+        linearize(mValues.length);
+        float removed = mValues[index];
+        int moved = mSize - index - 1;
+        System.arraycopy(mValues, index + 1, mValues, index, moved);
+        if (mXValues != null) {
+            System.arraycopy(mXValues, index + 1, mXValues, index, moved);
+        }
+        mSize--;
+        mModCount++;
+        notifyRemoved(removed);
+        return removed;
+    }
+
+    /**
+     * Replace the value at the given index
+     * @param index
+     * @param value
+     * @return the previous value
+     */
+    public float set(int index, float value) {
+        checkIndex(index);
+        int position = physicalIndex(index);
+        float previous = mValues[position];
+        mValues[position] = value;
+        mModCount++;
+        notifyRemoved(previous);
+        notifyInserted(value);
+        return previous;
+    }
+
+    /**
+     * Remove all values from the series
+     */
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+        mModCount++;
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onSeriesCleared();
+        }
+    }
+
+    /****************************************
+                    Getters
+     ****************************************/
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    @Override
+    public boolean hasXValues() {
+        return mXValues != null;
+    }
+
+    @Override
+    public float get(int index) {
+        checkIndex(index);
+        return mValues[physicalIndex(index)];
+    }
+
+    /**
+     * Returns the x value at the index, or the index itself if the series does not have x values
+     * @param index
+     * @return
+     */
+    @Override
+    public float getX(int index) {
+        checkIndex(index);
+        return mXValues != null ? mXValues[physicalIndex(index)] : index;
+    }
+
+    /**
+     * Returns the index of the value whose x value is closest to the given x value
+     * Without x values this is just the rounded x, otherwise it is a binary search, since x values are ascending
+     * @param x
+     * @return the index, or -1 if the series is empty
+     */
+    public int findNearestIndex(float x) {
+        if (mSize == 0) return -1;
+
+        if (mXValues == null) {
+            int index = Math.round(x);
+            return index < 0 ? 0 : (index >= mSize ? mSize - 1 : index);
+        }
+
+        int after = findFirstIndexAtOrAfter(x);
+        if (after == 0) return 0;
+        if (after == mSize) return mSize - 1;
+
+        int before = after - 1;
+        float beforeX = mXValues[physicalIndex(before)];
+        float afterX = mXValues[physicalIndex(after)];
+        return x - beforeX <= afterX - x ? before : after;
+    }
+
+    /**
+     * Binary search for the first index whose x value is not less than the given x value
+     * @param x
+     * @return the index, or size() if every x value is less than x
+     */
+    public int findFirstIndexAtOrAfter(float x) {
+        if (mXValues == null) {
+            int index = (int) Math.ceil(x);
+            return index < 0 ? 0 : (index > mSize ? mSize : index);
+        }
+
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mXValues[physicalIndex(mid)] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void getValues(int start, int count, float[] buffer, int offset) {
+        checkRange(start, count);
+        copyRange(mValues, start, count, buffer, offset);
+    }
+
+    @Override
+    public void getXValues(int start, int count, float[] buffer, int offset) {
+        checkRange(start, count);
+        if (mXValues != null) {
+            copyRange(mXValues, start, count, buffer, offset);
+        } else {
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = start + i;
+            }
+        }
+    }
+
+    @Override
+    public float getMin(int start, int end) {
+        start = Math.max(0, start);
+        end = Math.min(mSize, end);
+        if (start >= end) return Float.NaN;
+
+        float min = mValues[physicalIndex(start)];
+        for (int i = start + 1; i < end; i++) {
+            float value = mValues[physicalIndex(i)];
+            if (value < min) min = value;
+        }
+        return min;
+    }
+
+    @Override
+    public float getMax(int start, int end) {
+        start = Math.max(0, start);
+        end = Math.min(mSize, end);
+        if (start >= end) return Float.NaN;
+
+        float max = mValues[physicalIndex(start)];
+        for (int i = start + 1; i < end; i++) {
+            float value = mValues[physicalIndex(i)];
+            if (value > max) max = value;
+        }
+        return max;
+    }
+
+    /**
+     * Returns a copy of the values
+     * @return
+     */
+    public float[] toArray() {
+        float[] array = new float[mSize];
+        int firstPart = Math.min(mSize, mValues.length - mHead);
+        System.arraycopy(mValues, mHead, array, 0, firstPart);
+        System.arraycopy(mValues, 0, array, firstPart, mSize - firstPart);
+        return array;
+    }
+
+    /**
+     * Make this series a copy of the source, reusing its arrays if they are large enough
+     * Listeners are not notified. This is used to snapshot a series for a layout on a worker thread
+     * @param source
+     */
+    void copyFrom(FloatSeries source) {
+        int size = source.mSize;
+
+        /* A copy with a window is a ring buffer like its source, so it needs room for the whole window.
+           The x values are indexed like the values, so both arrays have the same length */
+        int capacity = Math.max(size, source.mWindowSize);
+        if (mValues.length < capacity) {
+            mValues = new float[capacity];
+        }
+        source.copyInto(source.mValues, mValues);
+
+        if (source.mXValues == null) {
+            mXValues = null;
+        } else {
+            if (mXValues == null || mXValues.length != mValues.length) {
+                mXValues = new float[mValues.length];
+            }
+            source.copyInto(source.mXValues, mXValues);
+        }
+
+        mHead = 0;
+        mSize = size;
+        mWindowSize = source.mWindowSize;
+        mEvictedCount = source.mEvictedCount;
+        mCopySource = source;
+        mCopyModCount = source.mModCount;
+    }
+
+    /**
+     * Bring a copy made by copyFrom up to date with the source
+     * If values were only appended to the source (and evicted from it) since, the copy drops and appends the same
+     * values, so the cost only depends on the number of new values. Otherwise the whole source is copied again
+     * @param source
+     */
+    void updateFrom(FloatSeries source) {
+        long appended = (source.mEvictedCount + source.mSize) - (mEvictedCount + mSize);
+        if (mCopySource != source || mCopyModCount != source.mModCount || mWindowSize != source.mWindowSize
+                || appended < 0 || appended > source.mSize) {
+            copyFrom(source);
+            return;
+        }
+
+        for (int i = source.mSize - (int) appended; i < source.mSize; i++) {
+            makeRoomForAppend(1);
+            int from = source.physicalIndex(i);
+            int to = physicalIndex(mSize);
+            mValues[to] = source.mValues[from];
+            if (mXValues != null) mXValues[to] = source.mXValues[from];
+            mSize++;
+        }
+    }
+
+    /****************************************
+                    Listeners
+     ****************************************/
+
+    void addListener(Listener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void notifyAppended(float value) {
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onValueAppended(value);
+        }
+    }
+
+    private void notifyEvicted(float value) {
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onValueEvicted(value);
+        }
+    }
+
+    private void notifyInserted(float value) {
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onValueInserted(value);
+        }
+    }
+
+    private void notifyRemoved(float value) {
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onValueRemoved(value);
+        }
+    }
+
+    /**
+     * Notified of every change to the series, so that cached statistics and geometry can be kept up to date
+     * Appends and evictions are reported separately, because they can be handled without a full relayout
+     */
+    interface Listener {
+        void onValueAppended(float value);  // added to the end of the series
+        void onValueEvicted(float value);   // dropped from the start of the series to stay within the window
+        void onValueInserted(float value);  // added anywhere else, or replacing a value
+        void onValueRemoved(float value);   // removed from anywhere, or replaced by another value
+        void onSeriesCleared();
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    /**
+     * Convert an index in the series to a position in the arrays
+     */
+    private int physicalIndex(int index) {
+        int position = mHead + index;
+        return position < mValues.length ? position : position - mValues.length;
+    }
+
+    /**
+     * Make sure there is space to append values, dropping the oldest values if the window is full
+     */
+    private void makeRoomForAppend(int count) {
+        if (mWindowSize > 0) {
+            while (mSize + count > mWindowSize) {
+                evictOldest();
+            }
+        } else {
+            ensureCapacity(mSize + count);
+        }
+    }
+
+    private void evictOldest() {
+        float evicted = mValues[mHead];
+        mHead = physicalIndex(1);
+        mSize--;
+        mEvictedCount++;
+        if (mSize == 0) mHead = 0;
+        notifyEvicted(evicted);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mValues.length) {
+            linearize(Math.max(capacity, mValues.length + (mValues.length >> 1) + 1));
+        }
+    }
+
+    /**
+     * Move the values to the start of arrays of the given capacity, so that mHead is 0
+     */
+    private void linearize(int capacity) {
+        if (mHead == 0 && capacity == mValues.length) return;
+
+        mValues = copyInOrder(mValues, capacity);
+        if (mXValues != null) {
+            mXValues = copyInOrder(mXValues, capacity);
+        }
+        mHead = 0;
+    }
+
+    private float[] copyInOrder(float[] source, int capacity) {
+        float[] copy = new float[capacity];
+        copyInto(source, copy);
+        return copy;
+    }
+
+    /**
+     * Copy the values of one of the ring arrays to the start of the destination, in order
+     */
+    private void copyInto(float[] source, float[] destination) {
+        int firstPart = Math.min(mSize, source.length - mHead);
+        System.arraycopy(source, mHead, destination, 0, firstPart);
+        System.arraycopy(source, 0, destination, firstPart, mSize - firstPart);
+    }
+
+    /**
+     * Copy a range of one of the ring arrays, in order, which takes two copies if the range wraps around
+     */
+    private void copyRange(float[] source, int start, int count, float[] destination, int offset) {
+        int position = physicalIndex(start);
+        int firstPart = Math.min(count, source.length - position);
+        System.arraycopy(source, position, destination, offset, firstPart);
+        System.arraycopy(source, 0, destination, offset + firstPart, count - firstPart);
+    }
+
+    private void checkRange(int start, int count) {
+        if (start < 0 || count < 0 || start + count > mSize) {
+            throw new IndexOutOfBoundsException("Start: " + start + ", Count: " + count + ", Size: " + mSize);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+}
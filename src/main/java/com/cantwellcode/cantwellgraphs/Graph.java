@@ -1,20 +1,30 @@
 package com.cantwellcode.cantwellgraphs;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.LinearGradient;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.Shader;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.view.GestureDetector;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 
+import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Created by danielCantwell on 4/17/15.
@@ -43,11 +53,73 @@ public class Graph extends View {
     private boolean mCustomTopValue;    // the user can set a custom value for the top y value
     private float mTopValue;            // the y value at the top of the graph
 
-    private int mBarItemCount = 0;      // to display a bar graph, we need to know how many bars exist
+    /* Bars: the graph's width is split between categories, and the bars that share a category are grouped or stacked.
+       Every bar's rectangle is laid out at once, from a table of the bar values by series and category */
+    private int mBarCategoryCount = 0;  // to display a bar graph, we need to know how many categories exist
+    private BarMode mBarMode;
+    private int mBarTableSize;          // values used by the last frame: most bars in a category * category count
+    private int[] mCategoryBarCounts;   // bars found in each category so far this frame
+    private float[] mStackSums;         // running sum of the bars found in each category so far this frame
+    private float[] mBarValues;         // value of the nth bar of category c at n * categoryCount + c
+    private float[] mBarRects;          // edges of each bar, see BarLayout.layoutSeries
 
     private boolean mDisplayYLabels;    // the user can choose to display labels for the y coordinate
 
+    /* Viewport: the visible range of x values (NaN for the whole range), and optionally the visible y range */
+    private float mViewportStart;
+    private float mViewportEnd;
+    private float mViewportMinY;
+    private float mViewportMaxY;
+    private static final float MIN_VIEWPORT_FRACTION = 0.001f;  // how far in the viewport can be zoomed
+
+    private boolean mViewportGesturesEnabled;   // can the user pan and pinch-zoom the viewport
+    private ScaleGestureDetector mScaleDetector;
+    private GestureDetector mPanDetector;
+    private int mDrawnLabelWidth;               // label width of the last frame, used to map gestures to x values
+    private float mDataFirstX;                  // range of x values across all line items, see findDataRange
+    private float mDataLastX;
+
     private Paint mLabelPaint;          // paint object used for drawing the labels
+    private Paint mSeparatorPaint;      // paint object used for the line between the labels and the graph
+
+    /* The y labels are the nice ticks of AxisLayout. They are formatted into reusable char buffers and measured
+       only when the ticks change, and drawn from the buffers every frame */
+    private AxisLayout mAxisLayout;
+    private char mDecimalSeparator;
+    private char[][] mLabelChars;       // each label, followed by 2 more spaces that are measured but not drawn
+    private int[] mLabelLengths;        // number of chars that are drawn
+
+    /* Asynchronous layout: items are built on the executor, and drawn from their last published geometry */
+    private Executor mLayoutExecutor;           // null to lay out items on the UI thread
+    private List<GraphItem> mLayoutItems;       // items being built by the current layout
+    private boolean mLayoutRunning;             // an asynchronous layout is being built, or waiting to be published
+    private OnLayoutReadyListener mLayoutReadyListener;
+
+    /* Parallel layout: independent items are laid out at the same time, and joined before drawing */
+    private ExecutorService mParallelExecutor;  // null to lay out one item after another
+    private ExecutorService mBuildExecutor;     // parallel executor captured for the running asynchronous layout
+    private List<ItemLayoutTask> mUpdateTasks;  // reused tasks for the items updated on the UI thread
+    private List<ItemLayoutTask> mBuildTasks;   // reused tasks for the items built by the asynchronous layout
+    private boolean mBuildMeasured;             // the running asynchronous layout is timed for the metrics
+    private long mBuildNanos;                   // how long the last asynchronous layout took to build
+
+    private RenderMetrics mMetrics;     // null unless the user opts in to timing each frame
+
+    /* Layer cache: the background, items and labels are drawn into a bitmap that is only redrawn when they change,
+       so moving a highlight only costs drawing the bitmap and the highlights */
+    private boolean mLayerCacheEnabled;
+    private Bitmap mLayerBitmap;
+    private Canvas mLayerCanvas;
+    private boolean mLayerValid;    // false after anything other than a highlight has changed
+
+    /* Reused rectangles, for redrawing only the area of the highlights that moved, and skipping items outside of it */
+    private RectF mHighlightBounds;
+    private Rect mDirtyRect;
+    private RectF mItemBounds;
+
+    /* The label width only needs to be measured again when the ticks or the text size change */
+    private int mLabelWidth;
+    private boolean mLabelWidthValid;
 
 
     public Graph(Context context) {
@@ -76,36 +148,107 @@ public class Graph extends View {
         mTopPadding = true;         // enable top padding by default
         mBottomPadding = false;     // disable bottom padding by default
 
+        mBarMode = BarMode.GROUPED;
+        mCategoryBarCounts = new int[0];
+        mStackSums = new float[0];
+        mBarValues = new float[0];
+        mBarRects = new float[0];
+
         mCustomBaseValue = false;   // disable custom base value by default
         mCustomTopValue = false;    // disable custom top value by default
 
         mDisplayYLabels = false;    // hide y coordinate labels by default
 
+        /* By default the whole range is visible, and the viewport can't be changed by gestures */
+        mViewportStart = Float.NaN;
+        mViewportEnd = Float.NaN;
+        mViewportMinY = Float.NaN;
+        mViewportMaxY = Float.NaN;
+        mViewportGesturesEnabled = false;
+        mScaleDetector = new ScaleGestureDetector(getContext(), mScaleListener);
+        mPanDetector = new GestureDetector(getContext(), mPanListener);
+
         /* Initialize the label paint object */
         mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         mLabelPaint.setTextAlign(Paint.Align.RIGHT);
         setLabelColor(Color.BLACK);
         setLabelSize(30);
+
+        /* Initialize the separator paint object */
+        mSeparatorPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mSeparatorPaint.setColor(Color.BLACK);
+        mSeparatorPaint.setStrokeWidth(5);
+        mSeparatorPaint.setStyle(Paint.Style.STROKE);
+
+        /* The label buffers only grow with the number of ticks, so drawing the labels doesn't allocate */
+        mAxisLayout = new AxisLayout();
+        mDecimalSeparator = new DecimalFormatSymbols().getDecimalSeparator();
+        mLabelChars = new char[0][];
+        mLabelLengths = new int[0];
+        mLabelWidthValid = false;
+
+        /* By default, items are laid out on the UI thread */
+        mLayoutExecutor = null;
+        mLayoutItems = new ArrayList<>();
+        mLayoutRunning = false;
+        mParallelExecutor = null;
+        mUpdateTasks = new ArrayList<>();
+        mBuildTasks = new ArrayList<>();
+
+        /* By default, everything is drawn every frame */
+        mLayerCacheEnabled = false;
+        mLayerValid = false;
+
+        mHighlightBounds = new RectF();
+        mDirtyRect = new Rect();
+        mItemBounds = new RectF();
     }
 
     /**
      * Add a graph item
-     * @param graphItem - either a LineItem or a BarItem (GraphItem is an abstract class)
+     * @param graphItem - a LineItem, BarItem or BarSeries (GraphItem is an abstract class)
      */
     public void addGraphItem(GraphItem graphItem) {
         if (graphItem instanceof BarItem) {
-            ((BarItem) graphItem).setItemIndex(mBarItemCount);
-            mBarItemCount++;
+            ((BarItem) graphItem).setCategory(mBarCategoryCount);
+            mBarCategoryCount++;
         }
         mGraphItems.add(graphItem);
     }
 
+    /**
+     * Add a bar to a category. Bars that share a category are grouped or stacked (see setBarMode),
+     * in the order they were added. Bars added with addGraphItem get a new category of their own
+     * @param bar
+     * @param category - from 0, categories without bars are left empty
+     */
+    public void addBarItem(BarItem bar, int category) {
+        if (category < 0) {
+            throw new IllegalArgumentException("category must not be negative");
+        }
+        bar.setCategory(category);
+        mBarCategoryCount = Math.max(mBarCategoryCount, category + 1);
+        mGraphItems.add(bar);
+    }
+
+    /**
+     * Group the bars of a category side by side, or stack them on top of each other
+     * When stacked, the y bounds fit the tallest stack
+     * @param mode
+     */
+    public void setBarMode(BarMode mode) {
+        mBarMode = mode;
+        invalidate();
+    }
+
     /**
      * Add a list of graph items
      * @param graphItems
      */
     public void addAllGraphItems(List<GraphItem> graphItems) {
-        mGraphItems.addAll(graphItems);
+        for (int i = 0; i < graphItems.size(); i++) {
+            addGraphItem(graphItems.get(i));
+        }
     }
 
     /**
@@ -169,6 +312,7 @@ public class Graph extends View {
      */
     public void setLabelSize(float size) {
         mLabelPaint.setTextSize(size);
+        mLabelWidthValid = false;
     }
 
     /**
@@ -189,6 +333,121 @@ public class Graph extends View {
         mTopValue = top;
     }
 
+    /**
+     * Only show the x values between start and end
+     * For line items without x values, the x value of each point is its index
+     * Only the visible values are projected and drawn, so the cost depends on the visible range, not the data size
+     * @param start
+     * @param end
+     */
+    public void setViewport(float start, float end) {
+        if (end <= start) {
+            throw new IllegalArgumentException("The end of the viewport must be greater than the start");
+        }
+        mViewportStart = start;
+        mViewportEnd = end;
+        invalidate();
+    }
+
+    /**
+     * Only show the y values between min and max. This takes priority over the base and top values
+     * @param min
+     * @param max
+     */
+    public void setViewportY(float min, float max) {
+        if (max <= min) {
+            throw new IllegalArgumentException("The max of the viewport must be greater than the min");
+        }
+        mViewportMinY = min;
+        mViewportMaxY = max;
+        invalidate();
+    }
+
+    /**
+     * Show the whole range of x and y values again
+     */
+    public void resetViewport() {
+        mViewportStart = Float.NaN;
+        mViewportEnd = Float.NaN;
+        mViewportMinY = Float.NaN;
+        mViewportMaxY = Float.NaN;
+        invalidate();
+    }
+
+    public float getViewportStart() {
+        return mViewportStart;
+    }
+
+    public float getViewportEnd() {
+        return mViewportEnd;
+    }
+
+    /**
+     * Enable/Disable panning and pinch-zooming the viewport along the x axis
+     * Pinching zooms, and dragging with two fingers pans
+     * If touch is not enabled, dragging with one finger also pans
+     * @param isEnabled
+     */
+    public void enableViewportGestures(boolean isEnabled) {
+        mViewportGesturesEnabled = isEnabled;
+    }
+
+    /**
+     * Build the geometry of the line items on the given executor, instead of on the UI thread while drawing
+     * When the data changes, the graph keeps drawing the last completed geometry until the new one is built,
+     * so large line items don't cause dropped frames. Only one layout is built at a time
+     * @param executor - e.g. a single thread executor, or null to lay out on the UI thread again
+     */
+    public void setLayoutExecutor(Executor executor) {
+        mLayoutExecutor = executor;
+        invalidate();
+    }
+
+    /**
+     * Lay out the graph items at the same time on the given executor, and wait for all of them before drawing
+     * Once the y bounds and label width are known, each item's layout is independent of the others,
+     * so with many items the layout time scales with the number of threads. Items are still drawn in order
+     * This also applies to the items built by an asynchronous layout (see setLayoutExecutor)
+     * @param executor - a bounded pool, e.g. Executors.newFixedThreadPool(cores), or null to lay out one item at a time
+     */
+    public void setParallelLayoutExecutor(ExecutorService executor) {
+        mParallelExecutor = executor;
+        invalidate();
+    }
+
+    /**
+     * Set a listener that is called on the UI thread every time an asynchronous layout has been published
+     * @param listener
+     */
+    public void setOnLayoutReadyListener(OnLayoutReadyListener listener) {
+        mLayoutReadyListener = listener;
+    }
+
+    /**
+     * Time each frame's stages into the given metrics, and mark them as sections in system traces
+     * The metrics' listener is called at the end of every frame
+     * @param metrics - or null to stop timing
+     */
+    public void setRenderMetrics(RenderMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    public RenderMetrics getRenderMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Draw the background, items and labels into a cached bitmap, that is only redrawn when the graph is
+     * refreshed, resized, or an item's geometry changes. Touch interaction then only redraws the highlights
+     * The bitmap is the size of the view, so this uses width * height * 4 bytes of memory
+     * @param isEnabled
+     */
+    public void enableLayerCache(boolean isEnabled) {
+        mLayerCacheEnabled = isEnabled;
+        if (!isEnabled) releaseLayer();
+        invalidate();
+    }
+
     /**
      * Call this anytime you want to refresh / draw the graph
      */
@@ -196,114 +455,412 @@ public class Graph extends View {
         invalidate();
     }
 
+    /**
+     * Redraws the whole graph, including the cached layer
+     */
+    @Override
+    public void invalidate() {
+        mLayerValid = false;
+        super.invalidate();
+    }
+
+    /**
+     * Redraws the area of the graph where the highlights were and are now, so the cached layer can be reused
+     * (on hardware accelerated views, Android may redraw more than this area)
+     * @param bounds - union of the old and new highlight bounds
+     */
+    private void invalidateHighlights(RectF bounds) {
+        if (bounds.isEmpty()) return;
+        bounds.roundOut(mDirtyRect);
+        super.invalidate(mDirtyRect);
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
-        Log.d(LOG, "onDraw");
+        if (GraphLog.DEBUG) GraphLog.d(LOG, "onDraw");
 
-        canvas.drawColor(mBackgroundColor);
+        RenderMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginFrame();
+            metrics.begin(RenderStage.BOUNDS);
+        }
 
         float minY = Float.MAX_VALUE;
         float maxY = 0;
 
-        /* If there is neither a custom base nor top value
-           Then only need to loop through once, finding both min and max values */
-        if (!mCustomBaseValue && !mCustomTopValue) {
-            for (GraphItem item : mGraphItems) {
-                float min = item.getMinValue();
-                float max = item.getMaxValue();
+        /* Find both min and max values in a single loop, unless both are custom values.
+           Each item caches its own min and max, so this does not rescan the data.
+           The same loop places each bar in its category, and keeps the running sum of stacked bars */
+        int itemCount = mGraphItems.size();
+        boolean findBounds = !mCustomBaseValue || !mCustomTopValue;
+        boolean stacked = mBarMode == BarMode.STACKED;
+        int categoryCount = mBarCategoryCount;
+        int seriesCount = 0;
+        resetBarTable(categoryCount);
+
+        for (int i = 0; i < itemCount; i++) {
+            GraphItem item = mGraphItems.get(i);
+            float min;
+            float max;
 
-                if (min < minY) {
-                    minY = min;
+            if (item instanceof BarItem) {
+                BarItem bar = (BarItem) item;
+                int category = bar.getCategory();
+                int series = mCategoryBarCounts[category]++;
+                if (series == seriesCount) {
+                    seriesCount++;
+                    ensureBarCapacity(seriesCount * categoryCount);
                 }
-                if (max > maxY) {
-                    maxY = max;
+                bar.setSeriesIndex(series);
+                mBarValues[series * categoryCount + category] = bar.getValue();
+
+                /* A stacked bar reaches the sum of its category so far */
+                min = bar.getValue();
+                if (stacked) {
+                    mStackSums[category] += min;
+                    min = mStackSums[category];
                 }
-            }
-        } else {
-
-            /* Check for base value */
-            if (mCustomBaseValue) {
-                minY = mBaseValue;
+                max = min;
             } else {
-                for (GraphItem item : mGraphItems) {
-                    float min = item.getMinValue();
+                if (!findBounds) continue;
+                min = item.getMinValue();
+                max = item.getMaxValue();
+            }
 
-                    if (min < minY) {
-                        minY = min;
-                    }
-                }
+            if (min < minY) {
+                minY = min;
             }
+            if (max > maxY) {
+                maxY = max;
+            }
+        }
+        mBarTableSize = seriesCount * categoryCount;
 
-            /* Check for top value */
-            if (mCustomTopValue) {
-                maxY = mTopValue;
-            } else {
-                for (GraphItem item : mGraphItems) {
-                    float max = item.getMaxValue();
+        /* Check for base value */
+        if (mCustomBaseValue) {
+            minY = mBaseValue;
+        }
 
-                    if (max > maxY) {
-                        maxY = max;
-                    }
-                }
-            }
+        /* Check for top value */
+        if (mCustomTopValue) {
+            maxY = mTopValue;
         }
 
-        /*  Draw each graph item  */
-        for (GraphItem item : mGraphItems) {
+        /* The viewport's y range takes priority */
+        if (!Float.isNaN(mViewportMinY)) {
+            minY = mViewportMinY;
+            maxY = mViewportMaxY;
+        }
+
+        /* The label width is the same for every item */
+        int labelWidth = mDisplayYLabels ? layoutLabels(minY, maxY) : 0;
+        mDrawnLabelWidth = labelWidth;
+
+        /* Lay out every bar at once */
+        BarLayout.layoutSeries(mBarValues, seriesCount, categoryCount, mBarMode, mWidth, mHeight, labelWidth,
+                minY, maxY, mTopPadding, mBottomPadding, mBarRects);
+        if (metrics != null) metrics.end(RenderStage.BOUNDS);
+
+        /* While a layout is running, its items keep drawing their last published geometry.
+           Items are only prepared for a new layout once it has been published */
+        boolean async = mLayoutExecutor != null || mLayoutRunning;
+        int updateCount = 0;
+
+        /*  Update each graph item, so that it knows how to draw itself  */
+        for (int i = 0; i < itemCount; i++) {
+            GraphItem item = mGraphItems.get(i);
 
             if (item instanceof BarItem) {
-                ((BarItem) item).setItemCount(mBarItemCount);
+                BarItem bar = (BarItem) item;
+                bar.setRect(mBarRects, 4 * (bar.getSeriesIndex() * categoryCount + bar.getCategory()));
             }
 
             /* The user sets top/bottom padding enabled for the entire graph, so we must past that on to each item */
             item.setTopPaddingEnabled(mTopPadding);
             item.setBottomPaddingEnabled(mBottomPadding);
-            /* Update the item before drawing, so that it knows how to draw itself */
-            item.updateItem(mWidth, mHeight, minY, maxY, mDisplayYLabels ? getLabelWidth(String.valueOf(maxY)) : 0);
-            /* Draw the item */
+            item.setViewport(mViewportStart, mViewportEnd);
+            if (async && item.supportsAsyncLayout()) {
+                if (!mLayoutRunning && mLayoutExecutor != null
+                        && item.prepareLayout(mWidth, mHeight, minY, maxY, labelWidth)) {
+                    mLayoutItems.add(item);
+                }
+            } else if (mParallelExecutor != null) {
+                /* Only items with changes to lay out (or values to append) get a task, so that a frame without
+                   changes (e.g. moving a highlight) doesn't wake the pool */
+                item.setBounds(mWidth, mHeight, minY, maxY, labelWidth);
+                if (!item.needsUpdate()) continue;
+
+                ItemLayoutTask task = getLayoutTask(mUpdateTasks, updateCount++);
+                task.item = item;
+                task.build = false;
+                task.width = mWidth;
+                task.height = mHeight;
+                task.minY = minY;
+                task.maxY = maxY;
+                task.labelWidth = labelWidth;
+                task.measured = metrics != null;
+            } else {
+                if (metrics != null) metrics.begin(RenderStage.ITEM_LAYOUT);
+                item.updateItem(mWidth, mHeight, minY, maxY, labelWidth);
+                if (metrics != null) metrics.end(RenderStage.ITEM_LAYOUT);
+            }
+        }
+
+        runLayoutTasks(mParallelExecutor, mUpdateTasks, updateCount);
+        if (metrics != null) {
+            for (int i = 0; i < updateCount; i++) {
+                metrics.record(RenderStage.ITEM_LAYOUT, mUpdateTasks.get(i).nanos);
+            }
+        }
+
+        /* Every item is checked, so that none of them still reports the change on the next frame */
+        boolean geometryChanged = false;
+        for (int i = 0; i < itemCount; i++) {
+            if (mGraphItems.get(i).consumeGeometryChanged()) geometryChanged = true;
+        }
+
+        /*  Draw the background, each graph item in the order they were added, and the y labels,
+            either directly or into the cached layer if it is out of date  */
+        if (metrics != null) metrics.begin(RenderStage.DRAW);
+        if (mLayerCacheEnabled && ensureLayer()) {
+            if (!mLayerValid || geometryChanged) {
+                drawContent(mLayerCanvas, labelWidth);
+                mLayerValid = true;
+            }
+            canvas.drawBitmap(mLayerBitmap, 0, 0, null);
+        } else {
+            drawContent(canvas, labelWidth);
+        }
+
+        /*  Draw the highlights on top  */
+        for (int i = 0; i < itemCount; i++) {
+            mGraphItems.get(i).drawHighlights(canvas);
+        }
+        if (metrics != null) metrics.end(RenderStage.DRAW);
+
+        if (!mLayoutRunning && !mLayoutItems.isEmpty()) {
+            mLayoutRunning = true;
+            mBuildExecutor = mParallelExecutor;
+            mBuildMeasured = metrics != null;
+            mLayoutExecutor.execute(mLayoutTask);
+        }
+
+        if (metrics != null) metrics.endFrame(this);
+    }
+
+    /**
+     * Draws everything except the highlights
+     */
+    private void drawContent(Canvas canvas, int labelWidth) {
+        canvas.drawColor(mBackgroundColor);
+
+        for (int i = 0; i < mGraphItems.size(); i++) {
+            GraphItem item = mGraphItems.get(i);
+
+            /* Skip items that are completely outside of the area being redrawn */
+            if (item.getItemBounds(mItemBounds) && canvas.quickReject(mItemBounds, Canvas.EdgeType.AA)) continue;
+
             item.drawItem(canvas);
         }
 
         /*  Draw y labels if necessary  */
-        if (mDisplayYLabels) drawLabels(canvas, minY, maxY, getLabelWidth(String.valueOf(maxY)));
+        if (mDisplayYLabels) {
+            if (mMetrics != null) mMetrics.begin(RenderStage.LABELS);
+            drawLabels(canvas, labelWidth);
+            if (mMetrics != null) mMetrics.end(RenderStage.LABELS);
+        }
+    }
+
+    /**
+     * Clear the bar table of the last frame, and make sure it has room for every category
+     */
+    private void resetBarTable(int categoryCount) {
+        if (mCategoryBarCounts.length < categoryCount) {
+            mCategoryBarCounts = new int[categoryCount];
+            mStackSums = new float[categoryCount];
+        } else {
+            Arrays.fill(mCategoryBarCounts, 0, categoryCount, 0);
+            Arrays.fill(mStackSums, 0, categoryCount, 0);
+        }
+
+        /* Categories with fewer bars than others must not keep the values of the last frame */
+        Arrays.fill(mBarValues, 0, mBarTableSize, 0);
+    }
+
+    private void ensureBarCapacity(int bars) {
+        if (mBarValues.length < bars) {
+            mBarValues = Arrays.copyOf(mBarValues, Math.max(bars, 2 * mBarValues.length));
+            mBarRects = new float[4 * mBarValues.length];
+        }
+    }
+
+    /**
+     * Create the cached layer the size of the view, if it does not exist yet
+     * @return false if the view has no size
+     */
+    private boolean ensureLayer() {
+        if (mLayerBitmap != null) return true;
+
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return false;
+
+        mLayerBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mLayerCanvas = new Canvas(mLayerBitmap);
+        mLayerValid = false;
+        return true;
+    }
+
+    private void releaseLayer() {
+        if (mLayerBitmap != null) {
+            mLayerBitmap.recycle();
+            mLayerBitmap = null;
+            mLayerCanvas = null;
+        }
+        mLayerValid = false;
+    }
+
+    /**
+     * Builds the prepared items on the layout executor, then publishes them on the UI thread
+     */
+    private final Runnable mLayoutTask = new Runnable() {
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            if (mBuildMeasured) RenderMetrics.beginSection(RenderStage.ASYNC_LAYOUT);
+            try {
+                int count = mLayoutItems.size();
+                if (mBuildExecutor != null) {
+                    for (int i = 0; i < count; i++) {
+                        ItemLayoutTask task = getLayoutTask(mBuildTasks, i);
+                        task.item = mLayoutItems.get(i);
+                        task.build = true;
+                        task.measured = false;  // the whole build is timed as ASYNC_LAYOUT
+                    }
+                    runLayoutTasks(mBuildExecutor, mBuildTasks, count);
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        mLayoutItems.get(i).buildLayout();
+                    }
+                }
+            } finally {
+                if (mBuildMeasured) RenderMetrics.endSection();
+                mBuildNanos = System.nanoTime() - start;
+                post(mPublishTask);
+            }
+        }
+    };
+
+    /**
+     * Swaps in the geometry built by the layout task, and draws it
+     * If anything changed while it was being built, drawing prepares the next layout
+     */
+    private final Runnable mPublishTask = new Runnable() {
+        @Override
+        public void run() {
+            for (int i = 0; i < mLayoutItems.size(); i++) {
+                mLayoutItems.get(i).publishLayout();
+            }
+            mLayoutItems.clear();
+            mLayoutRunning = false;
+            if (mBuildMeasured && mMetrics != null) mMetrics.record(RenderStage.ASYNC_LAYOUT, mBuildNanos);
+            invalidate();
+
+            if (mLayoutReadyListener != null) {
+                mLayoutReadyListener.onLayoutReady(Graph.this);
+            }
+        }
+    };
+
+    /**
+     * Lays out a single item, as one of the tasks of a parallel layout
+     */
+    private static final class ItemLayoutTask implements Callable<Void> {
+        GraphItem item;
+        boolean build;      // build a prepared asynchronous layout, instead of updating the item
+        int width;
+        int height;
+        float minY;
+        float maxY;
+        int labelWidth;
+        boolean measured;   // time the task, and mark it in system traces
+        long nanos;         // how long the task took, if it was measured
+
+        @Override
+        public Void call() {
+            long start = measured ? System.nanoTime() : 0;
+            if (measured) RenderMetrics.beginSection(RenderStage.ITEM_LAYOUT);
+            try {
+                if (build) {
+                    item.buildLayout();
+                } else {
+                    item.updateItem(width, height, minY, maxY, labelWidth);
+                }
+            } finally {
+                if (measured) {
+                    RenderMetrics.endSection();
+                    nanos = System.nanoTime() - start;
+                }
+            }
+            item = null;
+            return null;
+        }
+    }
+
+    /**
+     * Get a reusable task from the list, adding one if there are not enough yet
+     */
+    private static ItemLayoutTask getLayoutTask(List<ItemLayoutTask> tasks, int index) {
+        if (index == tasks.size()) {
+            tasks.add(new ItemLayoutTask());
+        }
+        return tasks.get(index);
     }
 
     /**
-     * Draws labels for the y-coordinate
+     * Run the first count tasks on the executor, and wait until all of them are done
+     * A single task is just run on the calling thread. If a task fails, its exception is rethrown
+     */
+    private static void runLayoutTasks(ExecutorService executor, List<ItemLayoutTask> tasks, int count) {
+        if (count == 0) return;
+        if (count == 1) {
+            tasks.get(0).call();
+            return;
+        }
+
+        try {
+            List<Future<Void>> futures = executor.invokeAll(tasks.subList(0, count));
+            for (int i = 0; i < count; i++) {
+                futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Draws labels for the y-coordinate, that were laid out by layoutLabels in this frame
      * @param canvas    - canvas used to draw on
-     * @param minY  - min label value
-     * @param maxY  - max label value
      * @param maxLabelWidth - used to determine where to draw the labels and separator line
      */
-    private void drawLabels(Canvas canvas, float minY, float maxY, int maxLabelWidth) {
-        /* Displaying 5 values for the y coordinate. We already know the min and max, so we need to find the 3 in between */
-        float midValue = (minY + maxY) / 2;
-        float lowValue = (minY + maxY) / 4;
-        float highValue = (minY + maxY) * 3 / 4;
-
-        /* Find the y coordinate of the min and max labels */
-        float minYCoordinate = mBottomPadding ? mHeight * 9 / 10 : mHeight - mLabelPaint.descent();
-        float maxYCoordinate = mTopPadding ? mHeight / 10 : 3 * mLabelPaint.descent();
-        /* Find the y coordinates for the middle ones, based on the min and max coordinates */
-        float midYCoordinate = (minYCoordinate + maxYCoordinate) / 2;
-        float lowYCoordinate = (minYCoordinate + midYCoordinate) / 2;
-        float highYCoordinate = (maxYCoordinate + midYCoordinate) / 2;
-
-        /* Draw all five labels */
-        canvas.drawText(String.format("%.1f  ", minY), maxLabelWidth, minYCoordinate, mLabelPaint);
-        canvas.drawText(String.format("%.1f  ", lowValue), maxLabelWidth, lowYCoordinate, mLabelPaint);
-        canvas.drawText(String.format("%.1f  ", midValue), maxLabelWidth, midYCoordinate, mLabelPaint);
-        canvas.drawText(String.format("%.1f  ", highValue), maxLabelWidth, highYCoordinate, mLabelPaint);
-        canvas.drawText(String.format("%.1f  ", maxY), maxLabelWidth, maxYCoordinate, mLabelPaint);
+    private void drawLabels(Canvas canvas, int maxLabelWidth) {
+        for (int i = 0; i < mAxisLayout.count; i++) {
+            canvas.drawText(mLabelChars[i], 0, mLabelLengths[i], maxLabelWidth, mAxisLayout.baselines[i], mLabelPaint);
+        }
 
         /* Draw a line separating the labels and the graph itself */
+        canvas.drawLine(maxLabelWidth - 2, 0, maxLabelWidth - 2, mHeight, mSeparatorPaint);
+    }
 
-        Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        linePaint.setColor(Color.BLACK);
-        linePaint.setStrokeWidth(5);
-        linePaint.setStyle(Paint.Style.STROKE);
-
-        canvas.drawLine(maxLabelWidth - 2, 0, maxLabelWidth - 2, mHeight, linePaint);
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        releaseLayer();
     }
 
     @Override
@@ -316,7 +873,10 @@ public class Graph extends View {
         mWidth = w - xPad;
         mHeight = h - yPad;
 
-        Log.d(LOG, "Width: " + mWidth + " Height: " + mHeight);
+        // The cached layer is recreated at the new size
+        releaseLayer();
+
+        if (GraphLog.DEBUG) GraphLog.d(LOG, "Width: " + mWidth + " Height: " + mHeight);
     }
 
     /**
@@ -340,51 +900,46 @@ public class Graph extends View {
         if (countLineItems == 1) {
             /* If there is only 1 line item, find the closest point based only on the x coordinate */
 
-            if (singleLineItem.findDataPointX(x) != null)
-                return singleLineItem.findDataPointX(x);
-            else
-                return null;
+            return singleLineItem.findDataPointX(x);
 
         } else {
             /* If there is more that 1 line item, find the closest point based on the x and y coordinate */
 
-            /* Find the closest point of on each line item */
-            List<Point> closePoints = new ArrayList<>();
-            for (GraphItem item : mGraphItems) {
-                if (item instanceof LineItem) {
-                    closePoints.add(((LineItem) item).findDataPoint(x, y));
-                }
-            }
-
+            /* Find the closest point of on each line item, and keep the closest of those */
             float shortestDistance = Float.NaN;
             Point closest = null;
 
-            /* Loop through the closest points from each line item to determine with one is closest */
-            for (Point p : closePoints) {
-
-                float x1 = p.x;
-                float y1 = p.y;
-                float x2 = x;
-                float y2 = y;
+            for (GraphItem item : mGraphItems) {
+                if (item instanceof LineItem) {
+                    Point p = ((LineItem) item).findDataPoint(x, y);
+                    if (p == null) continue;
 
-                float distance = (float) Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+                    /* Squared distance is enough for comparing, so there is no need for a square root */
+                    float distance = (p.x - x) * (p.x - x) + (p.y - y) * (p.y - y);
 
-                if (closest == null || distance < shortestDistance) {
-                    shortestDistance = distance;
-                    closest = p;
+                    if (closest == null || distance < shortestDistance) {
+                        shortestDistance = distance;
+                        closest = p;
+                    }
                 }
             }
 
-            if (closest != null) {
-                return closest;
-            } else {
-                return null;
-            }
+            return closest;
         }
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        if (mViewportGesturesEnabled) {
+            mScaleDetector.onTouchEvent(event);
+            mPanDetector.onTouchEvent(event);
+
+            /* While panning or zooming, the touch is not used to move the highlights */
+            if (!mTouchEnabled || mScaleDetector.isInProgress() || event.getPointerCount() > 1) {
+                return true;
+            }
+        }
+
         if (mTouchEnabled) {
             /* Find the closest data point to the touch event */
             Point p = findDataPoint(event.getX(), event.getY());
@@ -394,8 +949,13 @@ public class Graph extends View {
                     if (item instanceof LineItem) {
                         /* Find the line item that contains this point, and notify that item to handle it */
                         if (((LineItem) item).containsPoint(p)) {
-                            ((LineItem) item).onTap(p);
-                            invalidate();
+                            /* Only the area where the highlights were, and where they are now, is redrawn */
+                            LineItem line = (LineItem) item;
+                            mHighlightBounds.setEmpty();
+                            line.unionHighlightBounds(mHighlightBounds);
+                            line.onTap(p);
+                            line.unionHighlightBounds(mHighlightBounds);
+                            invalidateHighlights(mHighlightBounds);
                             break;
                         }
                     }
@@ -407,7 +967,153 @@ public class Graph extends View {
         return false;
     }
 
-    private int getLabelWidth(String maxLabel) {
-        return (int) mLabelPaint.measureText(maxLabel + "    ");
+    /**
+     * Zooms the viewport around the focus of the pinch
+     */
+    private final ScaleGestureDetector.SimpleOnScaleGestureListener mScaleListener =
+            new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+        @Override
+        public boolean onScale(ScaleGestureDetector detector) {
+            if (!ensureViewport()) return false;
+
+            float span = mViewportEnd - mViewportStart;
+            float focus = getXValue(detector.getFocusX());
+            float newSpan = span / detector.getScaleFactor();
+
+            float start = focus - (focus - mViewportStart) * newSpan / span;
+            moveViewport(start, start + newSpan);
+            return true;
+        }
+    };
+
+    /**
+     * Pans the viewport with the drag
+     */
+    private final GestureDetector.SimpleOnGestureListener mPanListener = new GestureDetector.SimpleOnGestureListener() {
+        @Override
+        public boolean onDown(MotionEvent e) {
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+            if (mTouchEnabled && e2.getPointerCount() < 2) return false;
+            if (!ensureViewport()) return false;
+
+            float shift = distanceX * (mViewportEnd - mViewportStart) / getPlotWidth();
+            moveViewport(mViewportStart + shift, mViewportEnd + shift);
+            return true;
+        }
+    };
+
+    /**
+     * If there is no viewport yet, start with the whole range of the line items
+     * @return false if there are no line items with values
+     */
+    private boolean ensureViewport() {
+        if (!Float.isNaN(mViewportStart)) return true;
+
+        if (!findDataRange()) return false;
+
+        mViewportStart = mDataFirstX;
+        mViewportEnd = mDataLastX;
+        return true;
+    }
+
+    /**
+     * Move the viewport, keeping it within the range of the line items and no smaller than the minimum zoom
+     */
+    private void moveViewport(float start, float end) {
+        if (!findDataRange()) return;
+
+        float fullSpan = mDataLastX - mDataFirstX;
+        float span = Math.max(fullSpan * MIN_VIEWPORT_FRACTION, Math.min(end - start, fullSpan));
+        start = Math.max(mDataFirstX, Math.min(start, mDataLastX - span));
+
+        mViewportStart = start;
+        mViewportEnd = start + span;
+        invalidate();
+    }
+
+    /**
+     * Find the range of x values across all of the line items, and store it in mDataFirstX and mDataLastX
+     * @return false if there are no line items with more than one x value
+     */
+    private boolean findDataRange() {
+        float first = Float.NaN;
+        float last = Float.NaN;
+        for (int i = 0; i < mGraphItems.size(); i++) {
+            GraphItem item = mGraphItems.get(i);
+            if (item instanceof LineItem) {
+                float itemFirst = ((LineItem) item).getFirstX();
+                float itemLast = ((LineItem) item).getLastX();
+                if (Float.isNaN(first) || itemFirst < first) first = itemFirst;
+                if (Float.isNaN(last) || itemLast > last) last = itemLast;
+            }
+        }
+
+        mDataFirstX = first;
+        mDataLastX = last;
+        return !Float.isNaN(first) && last > first;
+    }
+
+    /**
+     * Convert an x coordinate on the graph to an x value in the viewport
+     */
+    private float getXValue(float x) {
+        return mViewportStart + (x - mDrawnLabelWidth) * (mViewportEnd - mViewportStart) / getPlotWidth();
+    }
+
+    private float getPlotWidth() {
+        return Math.max(1, mWidth - mDrawnLabelWidth);
+    }
+
+    /**
+     * Lay out the y labels, and the width of the label area, based on the width of the widest label
+     * The labels are only formatted and measured again when the ticks or the label size change
+     * @param minY - value at the bottom of the graph
+     * @param maxY - value at the top of the graph
+     * @return
+     */
+    private int layoutLabels(float minY, float maxY) {
+        boolean ticksChanged = mAxisLayout.layoutYLabels(minY, maxY, mHeight, mTopPadding, mBottomPadding,
+                mLabelPaint.descent(), mLabelPaint.getTextSize());
+
+        if (ticksChanged || !mLabelWidthValid) {
+            int count = mAxisLayout.count;
+            ensureLabelCapacity(count);
+
+            float width = 0;
+            for (int i = 0; i < count; i++) {
+                char[] chars = mLabelChars[i];
+                int length = LabelFormatter.formatDecimals(mAxisLayout.values[i], mAxisLayout.decimals,
+                        mDecimalSeparator, chars);
+                mLabelLengths[i] = LabelFormatter.appendSpaces(chars, length, 2);
+                length = LabelFormatter.appendSpaces(chars, mLabelLengths[i], 2);
+                width = Math.max(width, mLabelPaint.measureText(chars, 0, length));
+            }
+            mLabelWidth = (int) width;
+            mLabelWidthValid = true;
+        }
+        return mLabelWidth;
+    }
+
+    private void ensureLabelCapacity(int count) {
+        if (mLabelChars.length < count) {
+            char[][] chars = new char[count][];
+            System.arraycopy(mLabelChars, 0, chars, 0, mLabelChars.length);
+            for (int i = mLabelChars.length; i < count; i++) {
+                chars[i] = new char[LabelFormatter.MAX_LENGTH];
+            }
+            mLabelChars = chars;
+            mLabelLengths = new int[count];
+        }
+    }
+
+    /**
+     * Called on the UI thread when an asynchronous layout has been built and the graph is about to draw it
+     */
+    public interface OnLayoutReadyListener {
+        void onLayoutReady(Graph graph);
     }
 }
@@ -1,6 +1,7 @@
 package com.cantwellcode.cantwellgraphs;
 
 import android.graphics.Canvas;
+import android.graphics.RectF;
 
 /**
  * Created by danielCantwell on 4/21/15.
@@ -18,6 +19,10 @@ public abstract class GraphItem {
 
     protected float mLabelWidth;    // Width of the largest y value
 
+    // The range of x values that is visible, or NaN if the whole range is visible
+    protected float mViewportStart = Float.NaN;
+    protected float mViewportEnd = Float.NaN;
+
     protected FillType mFillType;   // None, Solid, Gradient
 
     //  If top padding is enabled, the maximum y coordinate is 9/10 the height of the graph
@@ -26,20 +31,137 @@ public abstract class GraphItem {
     //  but if there is "fill" for any of the lines, it goes all the way to the bottom
     protected boolean mBottomPaddingEnabled;
 
+    // Set whenever something that affects the item's geometry changes (data, size, bounds, padding, style),
+    // so that the item only rebuilds its geometry when it needs to
+    private boolean mLayoutDirty = true;
+
+    // Set whenever the item's geometry has been rebuilt, so that the graph knows its cached layer is out of date
+    private boolean mGeometryChanged = true;
+
+    // Cached min and max values of the item's data, so that the graph does not rescan the data every frame
+    private boolean mStatsValid;
+    private float mStatsMin;
+    private float mStatsMax;
+
     abstract void init(); // Initialization function
 
     /*
         Before an item is drawn via drawItem, the graph calls updateItem
         It passes these values so the item knows how to draw itself
+        The item's geometry is only rebuilt (via layoutItem) if something has changed since the last update
     */
     protected void updateItem(int width, int height, float minY, float maxY, int labelWidth) {
+        setBounds(width, height, minY, maxY, labelWidth);
+
+        if (mLayoutDirty) {
+            layoutItem();
+            mLayoutDirty = false;
+            mGeometryChanged = true;
+        }
+    }
+
+    /*
+        Rebuild the item's geometry (points, paths, shaders) from the values passed to updateItem
+    */
+    protected abstract void layoutItem();
+
+    protected abstract void drawItem(Canvas canvas);
+
+    /**
+     * The area the item draws in, so that the graph can skip items that are outside of the area being redrawn
+     * @param bounds - set to the item's bounds
+     * @return false if the bounds are not known, in which case the item is always drawn
+     */
+    protected boolean getItemBounds(RectF bounds) {
+        return false;
+    }
+
+    /*
+        Highlights are drawn separately, after every item has been drawn,
+        so that moving them does not require the items to be drawn again
+    */
+    protected void drawHighlights(Canvas canvas) {
+    }
+
+    /*
+        If the graph has a layout executor, items that support it are laid out in three steps instead of updateItem:
+        prepareLayout captures everything the layout needs on the UI thread, buildLayout builds the geometry
+        on a worker thread without touching the item's live state, and publishLayout makes it the geometry
+        that drawItem draws, back on the UI thread. The graph never prepares an item while it is being built
+    */
+    protected boolean supportsAsyncLayout() {
+        return false;
+    }
+
+    /**
+     * Capture the layout inputs, on the UI thread
+     * @return true if the geometry needs to be rebuilt, in which case buildLayout and publishLayout will be called
+     */
+    protected boolean prepareLayout(int width, int height, float minY, float maxY, int labelWidth) {
+        setBounds(width, height, minY, maxY, labelWidth);
+
+        boolean dirty = mLayoutDirty;
+        mLayoutDirty = false;
+        return dirty;
+    }
+
+    /**
+     * Build the geometry from the inputs captured by prepareLayout, on a worker thread
+     */
+    protected void buildLayout() {
+    }
+
+    /**
+     * Draw the geometry built by buildLayout from now on, on the UI thread
+     */
+    protected void publishLayout() {
+    }
+
+    /**
+     * Set the values that the item is laid out with, marking the layout dirty if any of them changed
+     */
+    void setBounds(int width, int height, float minY, float maxY, int labelWidth) {
+        if (width != mWidth || height != mHeight || minY != mMinY || maxY != mMaxY || labelWidth != mLabelWidth) {
+            mLayoutDirty = true;
+        }
+
         mWidth = width;
         mHeight = height;
         mMinY = minY;
         mMaxY = maxY;
         mLabelWidth = labelWidth;
     }
-    protected abstract void drawItem(Canvas canvas);
+
+    /**
+     * Check if the next update has anything to do, e.g. so that the graph only lays out items that changed
+     * Items that can change without dirtying the layout (such as appended values) must report those changes as well
+     */
+    protected boolean needsUpdate() {
+        return mLayoutDirty;
+    }
+
+    /**
+     * Call when the geometry has changed outside of layoutItem, e.g. when a new geometry is published
+     */
+    protected void markGeometryChanged() {
+        mGeometryChanged = true;
+    }
+
+    /**
+     * Check if the geometry has changed since the last time this was called
+     */
+    boolean consumeGeometryChanged() {
+        boolean changed = mGeometryChanged;
+        mGeometryChanged = false;
+        return changed;
+    }
+
+    /**
+     * Call when something has changed that requires the geometry to be rebuilt on the next update
+     */
+    protected void invalidateLayout() {
+        mLayoutDirty = true;
+    }
 
     /**
      * Calculate the y coordinate for a given value, based on the min and max values and coordinates
@@ -49,22 +171,98 @@ public abstract class GraphItem {
      * @return
      */
     float getYCoordinate(float value, float minYCoord, float maxYCoord) {
-        if (value == mMinY) {
-            return mHeight - minYCoord;
-        } else if (value == mMaxY) {
-            return mHeight - maxYCoord;
-        } else {
-            return mHeight - (minYCoord + ((value - mMinY) * (maxYCoord - minYCoord) / (mMaxY - mMinY)));
+        return Projection.projectY(value, mMinY, mMaxY, mHeight, minYCoord, maxYCoord);
+    }
+
+    /**
+     * The minimum value of the item's data, computed only when the data has changed
+     * @return the minimum value, or NaN if the item has no data
+     */
+    protected final float getMinValue() {
+        if (!mStatsValid) refreshStats();
+        return mStatsMin;
+    }
+
+    /**
+     * The maximum value of the item's data, computed only when the data has changed
+     * @return the maximum value, or NaN if the item has no data
+     */
+    protected final float getMaxValue() {
+        if (!mStatsValid) refreshStats();
+        return mStatsMax;
+    }
+
+    /**
+     * Scan the item's data and report the result through setStats
+     */
+    protected abstract void computeStats();
+
+    protected void setStats(float min, float max) {
+        mStatsMin = min;
+        mStatsMax = max;
+    }
+
+    /**
+     * Call when the item's data has changed in a way that requires a full rescan
+     */
+    protected void invalidateStats() {
+        mStatsValid = false;
+    }
+
+    /**
+     * Call when a value has been added to the item's data. This is O(1)
+     * @param value
+     */
+    protected void includeInStats(float value) {
+        if (!mStatsValid) return;
+        if (Float.isNaN(mStatsMin) || value < mStatsMin) mStatsMin = value;
+        if (Float.isNaN(mStatsMax) || value > mStatsMax) mStatsMax = value;
+    }
+
+    /**
+     * Call when a value has been removed from the item's data
+     * The data is only rescanned (lazily) if the removed value was the min or max
+     * @param value
+     */
+    protected void excludeFromStats(float value) {
+        if (mStatsValid && (value <= mStatsMin || value >= mStatsMax)) {
+            mStatsValid = false;
+        }
+    }
+
+    private void refreshStats() {
+        computeStats();
+        mStatsValid = true;
+    }
+
+    /**
+     * Only the x values between start and end are visible (NaN for both to show everything)
+     * Items that are not laid out along x, such as bars, ignore the viewport
+     * @param start
+     * @param end
+     */
+    protected void setViewport(float start, float end) {
+        if (Float.compare(start, mViewportStart) != 0 || Float.compare(end, mViewportEnd) != 0) {
+            mViewportStart = start;
+            mViewportEnd = end;
+            mLayoutDirty = true;
         }
     }
 
-    protected abstract float getMinValue();
-    protected abstract float getMaxValue();
+    protected boolean hasViewport() {
+        return !Float.isNaN(mViewportStart) && !Float.isNaN(mViewportEnd) && mViewportEnd > mViewportStart;
+    }
 
     protected void setBottomPaddingEnabled(boolean enabled) {
-        mBottomPaddingEnabled = enabled;
+        if (mBottomPaddingEnabled != enabled) {
+            mBottomPaddingEnabled = enabled;
+            mLayoutDirty = true;
+        }
     }
     protected void setTopPaddingEnabled(boolean enabled) {
-        mTopPaddingEnabled = enabled;
+        if (mTopPaddingEnabled != enabled) {
+            mTopPaddingEnabled = enabled;
+            mLayoutDirty = true;
+        }
     }
 }
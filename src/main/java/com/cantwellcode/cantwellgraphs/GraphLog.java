@@ -0,0 +1,37 @@
+package com.cantwellcode.cantwellgraphs;
+
+import android.util.Log;
+
+/**
+ * Logging for the library
+ *
+ * Every call site is guarded with a compile time constant, e.g.
+ *      if (GraphLog.DEBUG) GraphLog.d(LOG, "Width: " + mWidth);
+ * so when DEBUG is false the compiler removes the call and the construction of its arguments entirely,
+ * and release builds pay nothing for logging in the rendering loops
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class GraphLog {
+
+    /**
+     * Set to true to log layout and drawing events while working on the library
+     */
+    static final boolean DEBUG = false;
+
+    /**
+     * Set to true to log structured per-value traces from the drawing loops
+     * Trace lines look like "trace event key=value key=value", so they are easy to filter and parse
+     */
+    static final boolean TRACE = false;
+
+    private GraphLog() {}
+
+    static void d(String tag, String message) {
+        Log.d(tag, message);
+    }
+
+    static void trace(String tag, String event, String key1, float value1, String key2, float value2) {
+        Log.d(tag, "trace " + event + " " + key1 + "=" + value1 + " " + key2 + "=" + value2);
+    }
+}
@@ -0,0 +1,107 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * Formats label values into reusable char buffers, so that drawing labels does not allocate Strings
+ *
+ * The output matches String.format("%.1f", value), or String.format("%.Nf", value) for N decimal places
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class LabelFormatter {
+
+    // Long enough for any float with up to MAX_DECIMALS decimal places, plus a few trailing spaces
+    static final int MAX_LENGTH = 56;
+    static final int MAX_DECIMALS = 9;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+
+    private LabelFormatter() {}
+
+    /**
+     * Writes the value with 1 decimal place into the buffer
+     * @param value
+     * @param decimalSeparator - '.' or ',' depending on the locale
+     * @param buffer - must hold at least MAX_LENGTH chars
+     * @return the number of chars written
+     */
+    static int formatOneDecimal(float value, char decimalSeparator, char[] buffer) {
+        return formatDecimals(value, 1, decimalSeparator, buffer);
+    }
+
+    /**
+     * Writes the value with a fixed number of decimal places into the buffer
+     * @param value
+     * @param decimals         - from 0 to MAX_DECIMALS
+     * @param decimalSeparator - '.' or ',' depending on the locale
+     * @param buffer - must hold at least MAX_LENGTH chars
+     * @return the number of chars written
+     */
+    static int formatDecimals(float value, int decimals, char decimalSeparator, char[] buffer) {
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("decimals must be between 0 and " + MAX_DECIMALS);
+        }
+        if (Float.isNaN(value)) {
+            return write("NaN", buffer, 0);
+        }
+        if (Float.isInfinite(value)) {
+            return write(value > 0 ? "Infinity" : "-Infinity", buffer, 0);
+        }
+
+        int length = 0;
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            buffer[length++] = '-';
+        }
+
+        long power = POWERS_OF_TEN[decimals];
+        double magnitude = Math.abs((double) value);
+        if (magnitude * power >= 1e17) {
+            // Too large to scale into a long, these are rare enough to allow the allocation
+            return write(String.format("%." + decimals + "f", value), buffer, 0);
+        }
+
+        long scaled = Math.round(magnitude * power);
+        long integerPart = scaled / power;
+        long fraction = scaled % power;
+
+        /* Write the integer digits backwards, then reverse them */
+        int start = length;
+        do {
+            buffer[length++] = (char) ('0' + (integerPart % 10));
+            integerPart /= 10;
+        } while (integerPart > 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+
+        /* Write the decimal digits, with leading zeros */
+        if (decimals > 0) {
+            buffer[length++] = decimalSeparator;
+            for (int i = decimals - 1; i >= 0; i--) {
+                buffer[length + i] = (char) ('0' + (fraction % 10));
+                fraction /= 10;
+            }
+            length += decimals;
+        }
+        return length;
+    }
+
+    /**
+     * Appends spaces after the formatted value
+     * @return the new length
+     */
+    static int appendSpaces(char[] buffer, int length, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer[length++] = ' ';
+        }
+        return length;
+    }
+
+    private static int write(String s, char[] buffer, int offset) {
+        s.getChars(0, s.length(), buffer, offset);
+        return offset + s.length();
+    }
+}
@@ -0,0 +1,97 @@
+package com.cantwellcode.cantwellgraphs;
+
+import android.graphics.LinearGradient;
+import android.graphics.Path;
+import android.graphics.Shader;
+
+/**
+ * A line shape, with its path buffers replayed into the Paths and Shader that a LineItem draws
+ *
+ * The replay happens wherever the shape is built, so with asynchronous layout it stays off the UI thread
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class LineGeometry extends LineShape {
+
+    /* Inputs of the fill shader */
+    boolean gradient;
+    int gradientStartColor;
+    int gradientEndColor;
+
+    final Path linePath = new Path();
+    final Path fillPath = new Path();
+    Shader fillShader;
+
+    /**
+     * Replay both path buffers, and create the fill shader
+     */
+    void updatePaths() {
+        linePath.rewind();
+        replay(line, 0, 0, linePath);
+        fillPath.rewind();
+        if (hasFill) replay(fill, 0, 0, fillPath);
+
+        if (gradient) {
+            fillShader = new LinearGradient(0, 0, 0, height, gradientEndColor, gradientStartColor, Shader.TileMode.CLAMP);
+        } else {
+            fillShader = null;
+        }
+    }
+
+    /**
+     * Replay the verbs that were added to the end of the line buffer, after it was extended
+     * @param fromVerb  - number of verbs the line buffer had before it was extended
+     * @param fromCoord - number of coordinates the line buffer had before it was extended
+     */
+    void appendLinePath(int fromVerb, int fromCoord) {
+        replay(line, fromVerb, fromCoord, linePath);
+    }
+
+    /**
+     * Replay the end of the fill buffer, after it was extended
+     * The fill's last point before it was extended (its bottom corner) was moved to the first new point,
+     * so it is moved in the fill path as well, before the new verbs are replayed
+     * @param fromVerb  - number of verbs the fill buffer had before it was extended
+     * @param fromCoord - number of coordinates the fill buffer had before it was extended
+     */
+    void appendFillPath(int fromVerb, int fromCoord) {
+        if (!hasFill) return;
+        float[] c = fill.getCoords();
+        fillPath.setLastPoint(c[fromCoord - 2], c[fromCoord - 1]);
+        replay(fill, fromVerb, fromCoord, fillPath);
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private static void replay(PathBuffer buffer, int fromVerb, int fromCoord, Path path) {
+        float[] c = buffer.getCoords();
+        int k = fromCoord;
+
+        int verbCount = buffer.getVerbCount();
+        for (int i = fromVerb; i < verbCount; i++) {
+            switch (buffer.getVerb(i)) {
+                case PathBuffer.MOVE:
+                    path.moveTo(c[k], c[k + 1]);
+                    k += 2;
+                    break;
+                case PathBuffer.LINE:
+                    path.lineTo(c[k], c[k + 1]);
+                    k += 2;
+                    break;
+                case PathBuffer.QUAD:
+                    path.quadTo(c[k], c[k + 1], c[k + 2], c[k + 3]);
+                    k += 4;
+                    break;
+                case PathBuffer.CUBIC:
+                    path.cubicTo(c[k], c[k + 1], c[k + 2], c[k + 3], c[k + 4], c[k + 5]);
+                    k += 6;
+                    break;
+                case PathBuffer.CLOSE:
+                    path.close();
+                    break;
+            }
+        }
+    }
+}
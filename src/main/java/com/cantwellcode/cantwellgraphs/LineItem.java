@@ -2,14 +2,10 @@ package com.cantwellcode.cantwellgraphs;
 
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.LinearGradient;
 import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.Shader;
-import android.util.Log;
+import android.graphics.RectF;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
@@ -19,15 +15,27 @@ import java.util.List;
  */
 public class LineItem extends GraphItem {
 
-    private final String LOG = "LineItem";
+    private SeriesDataSource mSource;   // the values that are drawn
+    private FloatSeries mSeries;        // the same as mSource if it is a FloatSeries, otherwise null (read only)
 
-    private List<Float> mValues;
-    private List<Point> mPoints;
-    private Path mLinePath;
-    private Path mFillPath;
+    /* Geometry that is drawn and used for hit testing, and the one being built by an asynchronous layout
+       (the same object if the item is laid out on the UI thread) */
+    private LineGeometry mFront;
+    private LineGeometry mBack;
+
+    /* Builds the geometry, with working buffers that are reused from one layout to the next */
+    private LineLayout mLayout;
+
+    private boolean mHasNewValues;  // values were appended since the last update
 
     private boolean mIsSmoothed;
 
+    private DownsampleType mDownsampleType;
+    private SmoothingType mSmoothingType;
+
+    private MinMaxPyramid mPyramid;     // summary of the values at several resolutions, or null if not enabled
+    private boolean mPyramidValid;      // false if the values changed in a way the pyramid can't catch up with
+
     private Paint mLinePaint;
     private int mLineColor;
     private float mLineWidth;
@@ -44,6 +52,11 @@ public class LineItem extends GraphItem {
     private VerticalHighlight mVerticalHighlight;
     private PointHighlight mPointHighlight;
 
+    /* Hit testing only looks this many pixels to each side of the touch, and at most this many values on each side,
+       so that it stays fast however dense the line is */
+    private static final float HIT_SLOP = 24;
+    private static final int MAX_HIT_VALUES = 256;
+
     /**
      * Constructor
      *
@@ -51,8 +64,22 @@ public class LineItem extends GraphItem {
      * @param fillType - fill type for below the line : none, solid, gradient
      */
     public LineItem(List<Float> values, FillType fillType) {
-        mValues = values;
-        Log.d(LOG, "Width: " + mWidth + " Height: " + mHeight);
+        this(FloatSeries.fromList(values), fillType);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param source   - datapoints, optionally with x values. A FloatSeries can be changed after it is drawn,
+     *                 any other source (e.g. a memory mapped series file) is read only
+     * @param fillType - fill type for below the line : none, solid, gradient
+     */
+    public LineItem(SeriesDataSource source, FillType fillType) {
+        mSource = source;
+        if (source instanceof FloatSeries) {
+            mSeries = (FloatSeries) source;
+            mSeries.addListener(mSeriesListener);
+        }
         mFillType = fillType;
         init();
     }
@@ -70,6 +97,14 @@ public class LineItem extends GraphItem {
         // By default, there line is not smooth
         mIsSmoothed = false;
 
+        // By default, every value is drawn
+        mDownsampleType = DownsampleType.NONE;
+        mSmoothingType = SmoothingType.MIDPOINT;
+
+        mLayout = new LineLayout();
+        mFront = new LineGeometry();
+        mBack = new LineGeometry();
+
         /* Initialize the line paint */
         mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         mLinePaint.setStyle(Paint.Style.STROKE);
@@ -93,38 +128,116 @@ public class LineItem extends GraphItem {
 
     @Override
     protected void updateItem(int width, int height, float minY, float maxY, int labelWidth) {
+        /* Rebuilds everything if the layout is dirty */
         super.updateItem(width, height, minY, maxY, labelWidth);
 
-        if (mFillType == FillType.GRADIENT) {
-            mFillPaint.setShader(new LinearGradient(0, 0, 0, mHeight, mGradientEndColor, mGradientStartColor, Shader.TileMode.CLAMP));
+        /* Otherwise, only the appended values need to be added */
+        if (mHasNewValues) {
+            if (mSeries != null && mLayout.canExtend(mFront, mSeries)) {
+                extendPath();
+            } else {
+                layoutItem();
+            }
         }
+    }
 
-        /* Calculate the list of points */
+    @Override
+    protected boolean needsUpdate() {
+        /* Appended values leave the layout clean, but still have to be added to the path */
+        return super.needsUpdate() || mHasNewValues;
+    }
 
-        createPoints();
+    @Override
+    protected void layoutItem() {
+        mHasNewValues = false;
 
-        /* Create either a smooth or normal line path based on the points */
+        captureLayout(mFront, false);
+        buildGeometry(mFront);
+        mFillPaint.setShader(mFront.fillShader);
+    }
 
-        if (mIsSmoothed) {
-            createSmoothLinePath();
-            if (hasFill())
-                createSmoothFillPath();
-        } else {
-            createLinePath();
-            if (hasFill())
-                createFillPath();
-        }
+    @Override
+    protected boolean supportsAsyncLayout() {
+        return true;
+    }
+
+    @Override
+    protected boolean prepareLayout(int width, int height, float minY, float maxY, int labelWidth) {
+        boolean dirty = super.prepareLayout(width, height, minY, maxY, labelWidth);
+        if (!dirty && !mHasNewValues) return false;
+
+        /* The worker builds from a snapshot, so the series can keep changing while it does */
+        mHasNewValues = false;
+        captureLayout(mBack, true);
+        return true;
+    }
+
+    @Override
+    protected void buildLayout() {
+        buildGeometry(mBack);
+    }
+
+    @Override
+    protected void publishLayout() {
+        LineGeometry built = mBack;
+        mBack = mFront;
+        mFront = built;
+        mFillPaint.setShader(mFront.fillShader);
+        markGeometryChanged();
     }
 
     @Override
     protected void drawItem(Canvas canvas) {
-        if (hasFill()) {
+        LineGeometry g = mFront;
+
+        // If the path was extended with streamed values, it is scrolled left
+        // In that case, or if there is a viewport, the path is clipped to the graph
+        boolean clip = g.streamScroll != 0 || g.hasViewport();
+        int saveCount = 0;
+        if (clip) {
+            saveCount = canvas.save();
+            canvas.clipRect(g.labelWidth, 0, g.width, g.height);
+            canvas.translate(-g.streamScroll, 0);
+        }
+
+        if (g.hasFill) {
             // If the line has a fill, draw the fill
-            canvas.drawPath(mFillPath, mFillPaint);
+            canvas.drawPath(g.fillPath, mFillPaint);
         }
         // Draw Line
-        canvas.drawPath(mLinePath, mLinePaint);
+        canvas.drawPath(g.linePath, mLinePaint);
+
+        if (clip) {
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    /**
+     * The bounds of the drawn path, including half of the line width,
+     * scrolled and clipped the same way the path is when it is drawn
+     */
+    @Override
+    protected boolean getItemBounds(RectF bounds) {
+        LineGeometry g = mFront;
+        if (g.line.isEmpty()) {
+            bounds.setEmpty();
+            return true;
+        }
+        bounds.set(g.line.getLeft(), g.line.getTop(), g.line.getRight(), g.line.getBottom());
+
+        float stroke = mLinePaint.getStrokeWidth() / 2;
+        bounds.set(bounds.left - stroke, bounds.top - stroke, bounds.right + stroke,
+                g.hasFill ? g.height : bounds.bottom + stroke);
+        bounds.offset(-g.streamScroll, 0);
+
+        if (g.streamScroll != 0 || g.hasViewport()) {
+            if (!bounds.intersect(g.labelWidth, 0, g.width, g.height)) bounds.setEmpty();
+        }
+        return true;
+    }
 
+    @Override
+    protected void drawHighlights(Canvas canvas) {
         // Draw Vertical Highlight if exists
         if (mVerticalHighlight != null) {
             mVerticalHighlight.draw(canvas);
@@ -136,136 +249,128 @@ public class LineItem extends GraphItem {
         }
     }
 
-    @Override
-    protected float getMaxValue() {
-        return Collections.max(mValues);
-    }
-
-    @Override
-    protected float getMinValue() {
-        return Collections.min(mValues);
-    }
-
     /**
-     * Calculate the coordinates based on the values and graph size
+     * Capture everything the layout needs into the geometry
+     * @param g        - geometry to build
+     * @param snapshot - true to copy the series, so that the geometry can be built on another thread
      */
-    private void createPoints() {
-        float maxX = mValues.size();
-
-        // ratio used for normalizing the coordinates to the graph space
-        float maxYCoordinate = mTopPaddingEnabled ? mHeight * 9 / 10 : mHeight;
-        float minYCoordinate = mBottomPaddingEnabled ? mHeight / 10 : 0;
-        float dx = (mWidth - mLabelWidth) / (maxX - 1);
-        float currentX = mLabelWidth;
-
-        mPoints = new ArrayList<>();
-        // Add the first point at x coordinate 0
-        mPoints.add(new Point(this, 0, mValues.get(0), currentX, getYCoordinate(mValues.get(0), minYCoordinate, maxYCoordinate)));
-        // Loop through and add the rest of the points
-        for (int i = 1; i < maxX; i++) {
-            currentX += dx;
-            float value = mValues.get(i);
-            float y = getYCoordinate(value, minYCoordinate, maxYCoordinate);
-            mPoints.add(new Point(this, i, value, currentX, y));
-            Log.d(LOG, "X: " + mPoints.get(i).x + " Y: " + mPoints.get(i).y);
+    private void captureLayout(LineGeometry g, boolean snapshot) {
+        /* Only a FloatSeries can change, other sources are read directly */
+        if (snapshot && mSeries != null) {
+            g.copySeries(mSeries);
+        } else {
+            g.series = mSource;
+        }
+        g.windowSize = mSeries != null ? mSeries.getWindowSize() : 0;
+        g.evictedCount = mSeries != null ? mSeries.getEvictedCount() : 0;
+
+        g.width = mWidth;
+        g.height = mHeight;
+        g.minY = mMinY;
+        g.maxY = mMaxY;
+        g.labelWidth = mLabelWidth;
+        g.viewportStart = mViewportStart;
+        g.viewportEnd = mViewportEnd;
+        g.topPaddingEnabled = mTopPaddingEnabled;
+        g.bottomPaddingEnabled = mBottomPaddingEnabled;
+        g.smoothed = mIsSmoothed;
+        g.smoothingType = mSmoothingType;
+        g.hasFill = hasFill();
+        g.gradient = mFillType == FillType.GRADIENT;
+        g.gradientStartColor = mGradientStartColor;
+        g.gradientEndColor = mGradientEndColor;
+        g.downsampleType = mDownsampleType;
+
+        /* The pyramid is only ever used by the layout. It is brought up to date when the geometry is built,
+           which is always the case for a series without a window */
+        g.pyramid = mPyramid;
+        g.rebuildPyramid = !mPyramidValid;
+        if (mPyramid != null && g.windowSize == 0) {
+            mPyramidValid = true;
         }
     }
 
     /**
-     * Calculate the line path based on the coordinates
+     * Build the paths of the geometry from its captured inputs only, and replay them into the Paths that are drawn
+     * @param g
      */
-    private void createLinePath() {
-        Path path = new Path();
-
-        boolean firstItem = true;
-        for (Point p : mPoints) {
-            if (firstItem) {
-                path.moveTo(p.x, p.y);
-                firstItem = false;
-            } else {
-                path.lineTo(p.x, p.y);
-            }
-        }
-
-        mLinePath = path;
+    private void buildGeometry(LineGeometry g) {
+        mLayout.build(g);
+        g.updatePaths();
     }
 
     /**
-     * Calculate a smoothed line path based on the coordinates
+     * Add the appended values to the end of the line and fill, and replay only the new part of their paths
      */
-    private void createSmoothLinePath() {
-        Path path = new Path();
-
-        Point prevPoint = null;
-        for (int i = 0; i < mPoints.size(); i++) {
-            Point point = mPoints.get(i);
-
-            if (i == 0) {
-                path.moveTo(point.x, point.y);
-            } else {
-                float midX = (prevPoint.x + point.x) / 2;
-                float midY = (prevPoint.y + point.y) / 2;
-
-                if (i == 1) {
-                    path.lineTo(midX, midY);
-                } else {
-                    path.quadTo(prevPoint.x, prevPoint.y, midX, midY);
-                }
-            }
-            prevPoint = point;
-        }
-        path.lineTo(prevPoint.x, prevPoint.y);
-
-        mLinePath = path;
+    private void extendPath() {
+        mHasNewValues = false;
+
+        LineGeometry g = mFront;
+        int verbs = g.line.getVerbCount();
+        int coords = g.line.getCoordCount();
+        int fillVerbs = g.fill.getVerbCount();
+        int fillCoords = g.fill.getCoordCount();
+        mLayout.extend(g, mSeries);
+        g.appendLinePath(verbs, coords);
+        g.appendFillPath(fillVerbs, fillCoords);
+        markGeometryChanged();
     }
 
     /**
-     * Calculate the fill path
-     * The difference in the line path, is that the fill's first and last points go to the bottom of the graph
+     * Find the min and max values of the source, in a single pass over the values
      */
-    private void createFillPath() {
-        Path path = new Path();
-
-        path.moveTo(mLabelWidth, mHeight);
-        for (Point p : mPoints) {
-            path.lineTo(p.x, p.y);
+    @Override
+    protected void computeStats() {
+        int size = mSource.size();
+        if (size == 0) {
+            setStats(Float.NaN, Float.NaN);
+            return;
         }
-        path.lineTo(mWidth, mHeight);
 
-        mFillPath = path;
+        /* Series files already know the min and max of their chunks, so they don't need to read every value */
+        setStats(mSource.getMin(0, size), mSource.getMax(0, size));
     }
 
     /**
-     * Calculate a smoothed fill path
-     * The difference in the line path, is that the fill's first and alst points go to the bottom of the graph
+     * Keeps the cached min and max values up to date as the series changes, and marks the geometry as dirty
+     * Appended and evicted values do not dirty the layout, because the path can often just be extended,
+     * and the pyramid catches up with appended values the next time it is used
      */
-    private void createSmoothFillPath() {
-        Path path = new Path();
+    private final FloatSeries.Listener mSeriesListener = new FloatSeries.Listener() {
+        @Override
+        public void onValueAppended(float value) {
+            includeInStats(value);
+            mHasNewValues = true;
+        }
 
-        Point prevPoint = null;
-        path.moveTo(mLabelWidth, mHeight);
-        for (int i = 0; i < mPoints.size(); i++) {
-            Point point = mPoints.get(i);
+        @Override
+        public void onValueEvicted(float value) {
+            excludeFromStats(value);
+            mPyramidValid = false;
+            mHasNewValues = true;
+        }
 
-            if (i == 0) {
-                path.lineTo(point.x, point.y);
-            } else {
-                float midX = (prevPoint.x + point.x) / 2;
-                float midY = (prevPoint.y + point.y) / 2;
-
-                if (i == 1) {
-                    path.lineTo(midX, midY);
-                } else {
-                    path.quadTo(prevPoint.x, prevPoint.y, midX, midY);
-                }
-            }
-            prevPoint = point;
+        @Override
+        public void onValueInserted(float value) {
+            includeInStats(value);
+            mPyramidValid = false;
+            invalidateLayout();
         }
-        path.lineTo(prevPoint.x, prevPoint.y);
-        path.lineTo(mWidth, mHeight);
 
-        mFillPath = path;
-    }
+        @Override
+        public void onValueRemoved(float value) {
+            excludeFromStats(value);
+            mPyramidValid = false;
+            invalidateLayout();
+        }
+
+        @Override
+        public void onSeriesCleared() {
+            invalidateStats();
+            mPyramidValid = false;
+            invalidateLayout();
+        }
+    };
 
     /*
      * *************************************
@@ -280,7 +385,89 @@ public class LineItem extends GraphItem {
      * @param isSmoothed
      */
     public void setSmoothed(boolean isSmoothed) {
-        mIsSmoothed = isSmoothed;
+        if (mIsSmoothed != isSmoothed) {
+            mIsSmoothed = isSmoothed;
+            invalidateLayout();
+        }
+    }
+
+    /**
+     * Choose how a smoothed line curves between its points (see setSmoothed)
+     * Midpoint curves are the default. Monotone curves go through every point without overshooting
+     *
+     * @param type - midpoint, Catmull-Rom, or monotone
+     */
+    public void setSmoothingType(SmoothingType type) {
+        if (mSmoothingType != type) {
+            mSmoothingType = type;
+            if (mIsSmoothed) invalidateLayout();
+        }
+    }
+
+    /**
+     * Choose how the line reduces the number of points it draws,
+     * when it has more than 2 values for every pixel of the graph's width
+     * Hit testing still uses every value
+     *
+     * @param type - none, LTTB, or min/max per pixel column
+     */
+    public void setDownsampleType(DownsampleType type) {
+        if (mDownsampleType != type) {
+            mDownsampleType = type;
+            invalidateLayout();
+        }
+    }
+
+    /**
+     * Summarize the values at several resolutions (min, max, first and last value of buckets of values),
+     * so that a line with millions of values draws in O(width) at any zoom level
+     * The summary is built once, and updated as values are appended. It is not used for lines with a window
+     *
+     * @param enabled
+     */
+    public void setPyramidEnabled(boolean enabled) {
+        if (enabled && mPyramid == null) {
+            mPyramid = new MinMaxPyramid();
+            mPyramidValid = false;
+            invalidateLayout();
+        } else if (!enabled && mPyramid != null) {
+            mPyramid = null;
+            invalidateLayout();
+        }
+    }
+
+    /**
+     * Append a value to the end of the line
+     * If the line has a window, and the graph's y bounds don't change (e.g. a custom base and top value are set),
+     * only the new value is projected and added to the path on the next draw
+     *
+     * @param value
+     */
+    public void append(float value) {
+        checkWritable();
+        mSeries.add(value);
+    }
+
+    /**
+     * Append values to the end of the line
+     *
+     * @param values
+     */
+    public void appendAll(float[] values) {
+        checkWritable();
+        mSeries.addAll(values);
+    }
+
+    /**
+     * Only keep and draw the most recent values, spaced evenly across the graph
+     * Once the window is full, each appended value drops the oldest one and the line scrolls to the left
+     *
+     * @param windowSize - maximum number of values, or 0 to keep every value
+     */
+    public void setWindowSize(int windowSize) {
+        checkWritable();
+        mSeries.setWindowSize(windowSize);
+        invalidateLayout();
     }
 
     /**
@@ -322,6 +509,7 @@ public class LineItem extends GraphItem {
     public void setGradientFillColor(int startColor, int endColor) {
         mGradientStartColor = startColor;
         mGradientEndColor = endColor;
+        invalidateLayout();
     }
 
     /**
@@ -359,11 +547,48 @@ public class LineItem extends GraphItem {
 
     /**
      * Returns the list of values for the line
+     * The list is a boxed view of the underlying series, so changes to it are reflected in the line
      *
      * @return
      */
     public List<Float> getValues() {
-        return mValues;
+        return new ValueList();
+    }
+
+    /**
+     * Returns the primitive series of values for the line
+     *
+     * @return the series, or null if the line was created from another kind of data source
+     */
+    public FloatSeries getSeries() {
+        return mSeries;
+    }
+
+    /**
+     * Returns the source of the values for the line
+     *
+     * @return
+     */
+    public SeriesDataSource getDataSource() {
+        return mSource;
+    }
+
+    /**
+     * The first x value of the line, or NaN if the line has no values
+     *
+     * @return
+     */
+    protected float getFirstX() {
+        return mSource.size() == 0 ? Float.NaN : mSource.getX(0);
+    }
+
+    /**
+     * The last x value of the line, or NaN if the line has no values
+     *
+     * @return
+     */
+    protected float getLastX() {
+        return mSource.size() == 0 ? Float.NaN : mSource.getX(mSource.size() - 1);
     }
 
     /**
@@ -373,40 +598,56 @@ public class LineItem extends GraphItem {
      * @return
      */
     protected boolean containsPoint(Point p) {
-        return mPoints.contains(p);
+        return p.line == this;
     }
 
     /**
      * Finds the point on the line closest the the x,y coordinate given
+     * Starts at the point closest to x, then only checks the neighbouring points
+     * that are horizontally closer than the closest point found so far, and within the touch slop
+     * On a dense line the walk stops after MAX_HIT_VALUES on each side, which are all in the touched pixel columns
      *
      * @param x
      * @param y
      * @return
      */
     protected Point findDataPoint(float x, float y) {
-        float shortestDistance = Float.NaN;
-        Point closest = null;
+        int start = findIndexX(x);
+        if (start == -1) return null;
 
-        for (Point p : mPoints) {
+        LineGeometry g = mFront;
+        int closest = start;
+        float shortestDistance = getSquaredDistance(g, start, x, y);
 
-            float x1 = p.x;
-            float y1 = p.y;
-            float x2 = x;
-            float y2 = y;
+        /* With a viewport, only the visible values are searched */
+        int first = g.hasViewport() ? g.visibleFirst : 0;
+        int last = g.hasViewport() ? g.visibleLast : g.series.size() - 1;
 
-            float distance = (float) Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+        // Search to the left
+        for (int i = start - 1; i >= first && start - i <= MAX_HIT_VALUES; i--) {
+            float dx = g.projectX(i) - x;
+            if (dx * dx >= shortestDistance || dx < -HIT_SLOP) break;
 
-            if (closest == null || distance < shortestDistance) {
+            float distance = getSquaredDistance(g, i, x, y);
+            if (distance < shortestDistance) {
                 shortestDistance = distance;
-                closest = p;
+                closest = i;
             }
         }
 
-        if (closest != null) {
-            return closest;
-        } else {
-            return null;
+        // Search to the right
+        for (int i = start + 1; i <= last && i - start <= MAX_HIT_VALUES; i++) {
+            float dx = g.projectX(i) - x;
+            if (dx * dx >= shortestDistance || dx > HIT_SLOP) break;
+
+            float distance = getSquaredDistance(g, i, x, y);
+            if (distance < shortestDistance) {
+                shortestDistance = distance;
+                closest = i;
+            }
         }
+
+        return createPoint(g, closest);
     }
 
     /**
@@ -416,22 +657,70 @@ public class LineItem extends GraphItem {
      * @return
      */
     protected Point findDataPointX(float x) {
-        float shortestDistance = Float.NaN;
-        Point closest = null;
+        int index = findIndexX(x);
+        return index != -1 ? createPoint(mFront, index) : null;
+    }
 
-        for (Point p : mPoints) {
+    /**
+     * Finds the index of the value whose x coordinate is closest to the given x coordinate
+     * The x coordinates are ascending, so this is a direct calculation for evenly spaced values,
+     * and a binary search for values with x values
+     * Hit testing uses the geometry that is drawn, so it matches what the user sees
+     *
+     * @param x
+     * @return the index, or -1 if the line has no values
+     */
+    private int findIndexX(float x) {
+        LineGeometry g = mFront;
+        if (g.series == null) return -1;
+        int size = g.series.size();
+        if (size == 0) return -1;
+        if (g.xScale == 0) return 0;
+
+        float target = g.xOrigin + (x - g.labelWidth) / g.xScale;
+        int index = SeriesSearch.findNearestIndex(g.series, target);
+
+        // With a viewport, only the visible values can be touched
+        if (g.hasViewport()) {
+            if (g.visibleFirst > g.visibleLast) return -1;
+            index = Math.max(g.visibleFirst, Math.min(index, g.visibleLast));
+        }
+        return index;
+    }
 
-            float distance = Math.abs(x - p.x);
-            if (closest == null || distance < shortestDistance) {
-                shortestDistance = distance;
-                closest = p;
-            }
+    /**
+     * Squared distance from the given coordinate to the value at the index, which avoids a square root
+     */
+    private static float getSquaredDistance(LineGeometry g, int index, float x, float y) {
+        float dx = g.projectX(index) - x;
+        float dy = g.projectY(g.series.get(index)) - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Create a point for the value at the given index
+     *
+     * @param g
+     * @param index
+     * @return
+     */
+    private Point createPoint(LineGeometry g, int index) {
+        float value = g.series.get(index);
+        return new Point(this, index, value, g.projectX(index), g.projectY(value));
+    }
+
+    /**
+     * Add the areas drawn by the highlights to the given rectangle
+     *
+     * @param bounds
+     */
+    protected void unionHighlightBounds(RectF bounds) {
+        if (mVerticalHighlight != null) {
+            mVerticalHighlight.unionBounds(bounds);
         }
 
-        if (closest != null) {
-            return closest;
-        } else {
-            return null;
+        if (mPointHighlight != null) {
+            mPointHighlight.unionBounds(bounds);
         }
     }
 
@@ -449,4 +738,57 @@ public class LineItem extends GraphItem {
             mPointHighlight.update(p);
         }
     }
+
+    /**
+     * Only a line created from a FloatSeries can be changed
+     */
+    private void checkWritable() {
+        if (mSeries == null) {
+            throw new UnsupportedOperationException("The line's data source is read only");
+        }
+    }
+
+    /**
+     * Boxed List view of the series, kept so that existing code using getValues() still works
+     */
+    private class ValueList extends AbstractList<Float> {
+
+        @Override
+        public Float get(int index) {
+            return mSource.get(index);
+        }
+
+        @Override
+        public int size() {
+            return mSource.size();
+        }
+
+        @Override
+        public Float set(int index, Float value) {
+            checkWritable();
+            return mSeries.set(index, value);
+        }
+
+        @Override
+        public void add(int index, Float value) {
+            checkWritable();
+            if (index == mSeries.size() && !mSeries.hasXValues()) {
+                mSeries.add(value);
+            } else {
+                mSeries.insert(index, value);
+            }
+        }
+
+        @Override
+        public Float remove(int index) {
+            checkWritable();
+            return mSeries.remove(index);
+        }
+
+        @Override
+        public void clear() {
+            checkWritable();
+            mSeries.clear();
+        }
+    }
 }
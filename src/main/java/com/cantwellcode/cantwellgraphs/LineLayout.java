@@ -0,0 +1,496 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * Builds the paths of a line from its captured shape, without the Android framework
+ *
+ * The values are projected to coordinates, reduced to about 2 points per pixel column if the line is downsampled
+ * or drawn from the pyramid, and then turned into straight or smoothed line and fill paths
+ * The working buffers are reused from one layout to the next, so a line only ever uses one LineLayout,
+ * and it must not build two shapes at the same time
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class LineLayout {
+
+    private float[] mPointX;    // x coordinate of each projected value
+    private float[] mPointY;    // y coordinate of each projected value
+    private int mFirstPoint;    // index of the value at mPointX[0], which is not 0 if the graph has a viewport
+    private int mPointCount;
+    private float[] mPathX;     // x coordinates of the points that are drawn (the same as mPointX if not downsampled)
+    private float[] mPathY;     // y coordinates of the points that are drawn (the same as mPointY if not downsampled)
+    private int mPathCount;
+    private int[] mPathIndices; // indices of the points kept by the downsampler
+    private float[] mReducedX;  // buffers for the downsampled or pyramid points, that mPathX and mPathY point to
+    private float[] mReducedY;
+    private float[] mTangents;  // slope of the monotone curve at each point that is drawn
+
+    LineLayout() {
+        mPointX = new float[0];
+        mPointY = new float[0];
+        mPathX = mPointX;
+        mPathY = mPointY;
+        mPathIndices = new int[0];
+        mReducedX = new float[0];
+        mReducedY = new float[0];
+        mTangents = new float[0];
+    }
+
+    /**
+     * Build the projection and paths of the shape, from its captured inputs only
+     * @param g
+     */
+    void build(LineShape g) {
+        g.streamOrigin = g.evictedCount;
+        g.streamEnd = g.streamOrigin + g.series.size();
+        g.streamScroll = 0;
+
+        /* Find the visible values and how they are projected */
+
+        computeProjection(g);
+
+        /* Either draw the pyramid buckets, or calculate the coordinates of the points and choose which to draw */
+
+        if (!createPyramidPoints(g)) {
+            projectPoints(g);
+            downsamplePoints(g);
+        }
+
+        g.line.rewind();
+        g.fill.rewind();
+        if (mPathCount == 0) return;
+
+        /* Create either a smooth or normal line path based on the points */
+
+        if (g.smoothed) {
+            createSmoothLinePath(g);
+            if (g.hasFill)
+                createSmoothFillPath(g);
+        } else {
+            createLinePath(g);
+            if (g.hasFill)
+                createFillPath(g);
+        }
+    }
+
+    /**
+     * Check if the values appended to the series can be added to the end of the shape's path
+     * This is only possible for an evenly spaced series with a window (so that the spacing never changes),
+     * with a straight line that is not downsampled, and the path must not have scrolled more than a full window
+     * The path must also have been built directly from the series, not from a snapshot of it
+     */
+    boolean canExtend(LineShape g, FloatSeries series) {
+        int window = series.getWindowSize();
+        long evicted = series.getEvictedCount();
+
+        return g.series == series
+                && isEvenlySpacedWindow(g)
+                && !g.hasViewport()
+                && !g.smoothed
+                && (g.downsampleType == DownsampleType.NONE || window <= 2 * (int) Math.ceil(g.width - g.labelWidth))
+                && !g.line.isEmpty()
+                && g.streamEnd > evicted
+                && evicted - g.streamOrigin < window;
+    }
+
+    /**
+     * Add the appended values to the end of the line path, and scroll the path by the number of evicted values
+     * This only projects the new values, so its cost does not depend on the size of the window
+     * The fill path is left open, ending at the bottom of the graph below its last point. That corner is moved up
+     * to the first new point, the other new points are added after it, and a new corner is added below the last
+     */
+    void extend(LineShape g, FloatSeries series) {
+        float dx = getWindowSpacing(g);
+
+        long evicted = series.getEvictedCount();
+        long end = evicted + series.size();
+        float x = g.labelWidth + (g.streamEnd - 1 - g.streamOrigin) * dx;
+
+        for (long k = g.streamEnd; k < end; k++) {
+            x = g.labelWidth + (k - g.streamOrigin) * dx;
+            float y = g.projectY(series.get((int) (k - evicted)));
+            g.line.lineTo(x, y);
+
+            if (g.hasFill) {
+                if (k == g.streamEnd) {
+                    g.fill.setLastPoint(x, y);
+                } else {
+                    g.fill.lineTo(x, y);
+                }
+            }
+        }
+
+        if (g.hasFill && end > g.streamEnd) {
+            g.fill.lineTo(x, g.height);
+        }
+
+        g.streamEnd = end;
+        g.streamScroll = (evicted - g.streamOrigin) * dx;
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    /**
+     * Calculate how values are projected to coordinates, based on the graph size and the viewport
+     * If the graph has a viewport, only the visible values (plus one on each side) are projected
+     */
+    private void computeProjection(LineShape g) {
+        SeriesDataSource series = g.series;
+        int size = series.size();
+        mFirstPoint = 0;
+        mPointCount = 0;
+        if (size == 0) return;
+
+        // ratio used for normalizing the coordinates to the graph space
+        g.maxYCoordinate = Projection.getMaxYCoordinate(g.height, g.topPaddingEnabled);
+        g.minYCoordinate = Projection.getMinYCoordinate(g.height, g.bottomPaddingEnabled);
+
+        /* With a viewport, the visible range is stretched across the graph.
+           Without x values, the points are evenly spaced (across the whole window, if there is one).
+           Otherwise, they are placed by their x value */
+        int first = 0;
+        int last = size - 1;
+        float firstX;
+        float xScale;
+        if (g.hasViewport()) {
+            g.visibleFirst = SeriesSearch.findFirstIndexAtOrAfter(series, g.viewportStart);
+            g.visibleLast = SeriesSearch.findFirstIndexAtOrAfter(series, Math.nextUp(g.viewportEnd)) - 1;
+            first = Math.max(0, g.visibleFirst - 1);
+            last = Math.min(size - 1, g.visibleLast + 1);
+            firstX = g.viewportStart;
+            xScale = (g.width - g.labelWidth) / (g.viewportEnd - g.viewportStart);
+        } else if (isEvenlySpacedWindow(g)) {
+            firstX = series.getX(0);
+            xScale = getWindowSpacing(g);
+        } else {
+            firstX = series.getX(0);
+            float xRange = series.getX(size - 1) - firstX;
+            xScale = xRange > 0 ? (g.width - g.labelWidth) / xRange : 0;
+        }
+        g.xOrigin = firstX;
+        g.xScale = xScale;
+
+        mFirstPoint = first;
+        mPointCount = last - first + 1;
+    }
+
+    /**
+     * Calculate the coordinates of the values chosen by computeProjection
+     * The values are read from the source in bulk, straight into the coordinate arrays, and projected in place
+     * The coordinate arrays are reused, and only grow when the number of projected values does
+     */
+    private void projectPoints(LineShape g) {
+        SeriesDataSource series = g.series;
+        int first = mFirstPoint;
+        int count = mPointCount;
+        if (mPointX.length < count) {
+            mPointX = new float[count];
+            mPointY = new float[count];
+        }
+
+        series.getXValues(first, count, mPointX, 0);
+        series.getValues(first, count, mPointY, 0);
+
+        float labelWidth = g.labelWidth;
+        float firstX = g.xOrigin;
+        float xScale = g.xScale;
+
+        // Loop through and calculate the coordinates, the first point is at the label width
+        for (int i = 0; i < count; i++) {
+            mPointX[i] = labelWidth + (mPointX[i] - firstX) * xScale;
+            mPointY[i] = g.projectY(mPointY[i]);
+        }
+    }
+
+    /**
+     * Choose the points that are drawn
+     * If downsampling is enabled and there are more than 2 points per pixel column, only about 2 points
+     * per column are kept, otherwise all of the points are drawn
+     */
+    private void downsamplePoints(LineShape g) {
+        int columns = (int) Math.ceil(g.width - g.labelWidth);
+        int threshold = 2 * columns;
+
+        if (g.downsampleType == DownsampleType.NONE || columns <= 0 || mPointCount <= threshold) {
+            mPathX = mPointX;
+            mPathY = mPointY;
+            mPathCount = mPointCount;
+            return;
+        }
+
+        /* The min/max downsampler keeps up to 2 points per column, plus the first and last point */
+        int maxKept = threshold + 4;
+        if (mPathIndices.length < maxKept) {
+            mPathIndices = new int[maxKept];
+        }
+        ensureReducedCapacity(maxKept);
+
+        int kept;
+        if (g.downsampleType == DownsampleType.LTTB) {
+            kept = Downsampler.lttb(mPointX, mPointY, mPointCount, threshold, mPathIndices);
+        } else {
+            kept = Downsampler.minMax(mPointX, mPointY, mPointCount, mPathIndices);
+        }
+
+        for (int i = 0; i < kept; i++) {
+            int index = mPathIndices[i];
+            mPathX[i] = mPointX[index];
+            mPathY[i] = mPointY[index];
+        }
+        mPathCount = kept;
+    }
+
+    /**
+     * Make sure the downsampled / pyramid point buffers can hold the given number of points,
+     * and point the path coordinates at them
+     */
+    private void ensureReducedCapacity(int count) {
+        if (mReducedX.length < count) {
+            mReducedX = new float[count];
+            mReducedY = new float[count];
+        }
+        mPathX = mReducedX;
+        mPathY = mReducedY;
+    }
+
+    /**
+     * If the pyramid is enabled and there are many values per pixel, create the path points from
+     * the coarsest pyramid level that still has about one bucket per pixel, instead of projecting every value
+     * Each bucket adds two points, its min and max, in the order that they occur
+     *
+     * @return false if the pyramid was not used
+     */
+    private boolean createPyramidPoints(LineShape g) {
+        MinMaxPyramid pyramid = g.pyramid;
+        SeriesDataSource series = g.series;
+        if (pyramid == null || g.windowSize > 0) return false;
+
+        /* Catch up with the values appended since the pyramid was last used, or rebuild it */
+        int size = series.size();
+        if (g.rebuildPyramid || pyramid.size() > size) {
+            pyramid.build(series);
+        } else {
+            for (int i = pyramid.size(); i < size; i++) {
+                pyramid.append(series.get(i));
+            }
+        }
+
+        int columns = (int) Math.ceil(g.width - g.labelWidth);
+        if (columns <= 0 || mPointCount == 0) return false;
+
+        int level = pyramid.chooseLevel(2f * mPointCount / columns);
+        if (level < 0) return false;
+
+        int bucketSize = pyramid.getBucketSize(level);
+        int firstBucket = mFirstPoint / bucketSize;
+        int lastBucket = (mFirstPoint + mPointCount - 1) / bucketSize;
+        ensureReducedCapacity(2 * (lastBucket - firstBucket + 1));
+
+        int count = 0;
+        for (int b = firstBucket; b <= lastBucket; b++) {
+            int start = b * bucketSize;
+            int end = Math.min(start + bucketSize, size) - 1;
+            float min = pyramid.getMin(level, b);
+            float max = pyramid.getMax(level, b);
+            boolean rising = pyramid.getFirst(level, b) <= pyramid.getLast(level, b);
+
+            mPathX[count] = g.projectX(start);
+            mPathY[count] = g.projectY(rising ? min : max);
+            count++;
+            mPathX[count] = g.projectX(end);
+            mPathY[count] = g.projectY(rising ? max : min);
+            count++;
+        }
+
+        mPathCount = count;
+        return true;
+    }
+
+    /**
+     * A series without x values that has a window is spaced evenly across the whole window,
+     * so that the spacing stays the same as values are appended
+     */
+    private static boolean isEvenlySpacedWindow(LineShape g) {
+        return g.windowSize > 0 && !g.series.hasXValues();
+    }
+
+    private static float getWindowSpacing(LineShape g) {
+        int window = g.windowSize;
+        return window > 1 ? (g.width - g.labelWidth) / (window - 1) : 0;
+    }
+
+    /**
+     * Calculate the line path based on the coordinates
+     */
+    private void createLinePath(LineShape g) {
+        PathBuffer path = g.line;
+        path.ensureCapacity(mPathCount, 2 * mPathCount);
+
+        path.moveTo(mPathX[0], mPathY[0]);
+        for (int i = 1; i < mPathCount; i++) {
+            path.lineTo(mPathX[i], mPathY[i]);
+        }
+    }
+
+    /**
+     * Calculate a smoothed line path based on the coordinates, with the shape's smoothing type
+     * The fill path copies the curves of the line path, so they are only calculated once
+     */
+    private void createSmoothLinePath(LineShape g) {
+        PathBuffer path = g.line;
+        path.moveTo(mPathX[0], mPathY[0]);
+        if (mPathCount == 1) {
+            path.lineTo(mPathX[0], mPathY[0]);
+            return;
+        }
+
+        switch (g.smoothingType) {
+            case CATMULL_ROM:
+                path.ensureCapacity(mPathCount, 6 * mPathCount);
+                addCatmullRomSegments(path);
+                break;
+            case MONOTONE:
+                path.ensureCapacity(mPathCount, 6 * mPathCount);
+                computeMonotoneTangents();
+                addMonotoneSegments(path);
+                break;
+            default:
+                path.ensureCapacity(mPathCount + 1, 4 * mPathCount + 2);
+                addMidpointSegments(path);
+                break;
+        }
+    }
+
+    /**
+     * Calculate the fill path
+     * The difference in the line path, is that the fill's first and last points go to the bottom of the graph
+     */
+    private void createFillPath(LineShape g) {
+        PathBuffer path = g.fill;
+        path.ensureCapacity(mPathCount + 2, 2 * mPathCount + 4);
+
+        path.moveTo(mPathX[0], g.height);
+        for (int i = 0; i < mPathCount; i++) {
+            path.lineTo(mPathX[i], mPathY[i]);
+        }
+        path.lineTo(mPathX[mPathCount - 1], g.height);
+    }
+
+    /**
+     * Calculate a smoothed fill path, from the curves of the smoothed line path
+     * The difference in the line path, is that the fill's first and last points go to the bottom of the graph
+     */
+    private void createSmoothFillPath(LineShape g) {
+        PathBuffer line = g.line;
+        PathBuffer path = g.fill;
+        path.ensureCapacity(line.getVerbCount() + 2, line.getCoordCount() + 4);
+
+        path.moveTo(mPathX[0], g.height);
+        path.lineTo(mPathX[0], mPathY[0]);
+        path.append(line, 1, 2);
+        path.lineTo(mPathX[mPathCount - 1], g.height);
+    }
+
+    /**
+     * Adds the smoothed segments after the first point, curving through the midpoints between points
+     * @param path - path that is already positioned at the first point
+     */
+    private void addMidpointSegments(PathBuffer path) {
+        for (int i = 1; i < mPathCount; i++) {
+            float prevX = mPathX[i - 1];
+            float prevY = mPathY[i - 1];
+            float midX = (prevX + mPathX[i]) / 2;
+            float midY = (prevY + mPathY[i]) / 2;
+
+            if (i == 1) {
+                path.lineTo(midX, midY);
+            } else {
+                path.quadTo(prevX, prevY, midX, midY);
+            }
+        }
+        path.lineTo(mPathX[mPathCount - 1], mPathY[mPathCount - 1]);
+    }
+
+    /**
+     * Adds a cubic segment between each pair of points, whose tangents point from the point before to the point after
+     * (a uniform Catmull-Rom spline, as Bezier curves). The first and last points are their own neighbours
+     * @param path - path that is already positioned at the first point
+     */
+    private void addCatmullRomSegments(PathBuffer path) {
+        int last = mPathCount - 1;
+        for (int i = 1; i <= last; i++) {
+            int before = Math.max(i - 2, 0);
+            int after = Math.min(i + 1, last);
+            float x1 = mPathX[i - 1];
+            float y1 = mPathY[i - 1];
+            float x2 = mPathX[i];
+            float y2 = mPathY[i];
+
+            path.cubicTo(x1 + (x2 - mPathX[before]) / 6, y1 + (y2 - mPathY[before]) / 6,
+                    x2 - (mPathX[after] - x1) / 6, y2 - (mPathY[after] - y1) / 6,
+                    x2, y2);
+        }
+    }
+
+    /**
+     * Calculate the slope of a monotone cubic curve at each point (Fritsch-Carlson, as limited by Steffen)
+     * A point between a rise and a fall, or next to a flat run, gets a slope of 0, so the curve never overshoots
+     * Points with the same x as a neighbour (e.g. min and max of a downsampled column) are treated as flat
+     */
+    private void computeMonotoneTangents() {
+        if (mTangents.length < mPathCount) {
+            mTangents = new float[mPathCount];
+        }
+
+        int last = mPathCount - 1;
+        for (int i = 1; i < last; i++) {
+            float h0 = mPathX[i] - mPathX[i - 1];
+            float h1 = mPathX[i + 1] - mPathX[i];
+            float s0 = h0 != 0 ? (mPathY[i] - mPathY[i - 1]) / h0 : 0;
+            float s1 = h1 != 0 ? (mPathY[i + 1] - mPathY[i]) / h1 : 0;
+
+            if (s0 * s1 <= 0 || h0 + h1 == 0) {
+                mTangents[i] = 0;
+            } else {
+                float p = (s0 * h1 + s1 * h0) / (h0 + h1);
+                float slope = Math.min(Math.min(Math.abs(s0), Math.abs(s1)), Math.abs(p) / 2) * 2;
+                mTangents[i] = s0 > 0 ? slope : -slope;
+            }
+        }
+
+        /* The ends use the one sided three point estimate */
+        mTangents[0] = getEndTangent(mPathX[1] - mPathX[0], mPathY[1] - mPathY[0], last > 1 ? mTangents[1] : Float.NaN);
+        mTangents[last] = getEndTangent(mPathX[last] - mPathX[last - 1], mPathY[last] - mPathY[last - 1],
+                last > 1 ? mTangents[last - 1] : Float.NaN);
+    }
+
+    /**
+     * @param h        - width of the end segment
+     * @param dy       - height of the end segment
+     * @param neighbor - tangent at the other end of the segment, or NaN if that is also an end
+     */
+    private static float getEndTangent(float h, float dy, float neighbor) {
+        if (h == 0) return Float.isNaN(neighbor) ? 0 : neighbor;
+        float secant = dy / h;
+        return Float.isNaN(neighbor) ? secant : (3 * secant - neighbor) / 2;
+    }
+
+    /**
+     * Adds a cubic segment between each pair of points, with the monotone tangents as Bezier control points
+     * @param path - path that is already positioned at the first point
+     */
+    private void addMonotoneSegments(PathBuffer path) {
+        for (int i = 1; i < mPathCount; i++) {
+            float x1 = mPathX[i - 1];
+            float y1 = mPathY[i - 1];
+            float x2 = mPathX[i];
+            float y2 = mPathY[i];
+            float third = (x2 - x1) / 3;
+
+            path.cubicTo(x1 + third, y1 + mTangents[i - 1] * third,
+                    x2 - third, y2 - mTangents[i] * third,
+                    x2, y2);
+        }
+    }
+}
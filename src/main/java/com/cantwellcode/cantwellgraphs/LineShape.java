@@ -0,0 +1,74 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * Everything needed to lay out a line, and the paths and projection that were built from it, without the Android framework
+ *
+ * A LineItem laid out on the UI thread has a single shape, built directly from its series
+ * With asynchronous layout it has two: the front one is drawn and used for hit testing,
+ * while the back one is built on a worker thread from a snapshot of the series, and then they are swapped
+ * LineLayout builds the shape, and each renderer replays its path buffers
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+class LineShape {
+
+    /* Inputs, captured when the layout is prepared */
+    SeriesDataSource series;    // the values the shape is built from, either the item's source or the snapshot
+    FloatSeries snapshot;       // copy of the item's series owned by this shape, only used for asynchronous layout
+    int windowSize;             // window size of the series, or 0 if it has no window (or is not a FloatSeries)
+    long evictedCount;          // number of values dropped from the series to stay within the window
+    int width;
+    int height;
+    float minY;
+    float maxY;
+    float labelWidth;
+    float viewportStart = Float.NaN;
+    float viewportEnd = Float.NaN;
+    boolean topPaddingEnabled;
+    boolean bottomPaddingEnabled;
+    boolean smoothed;
+    SmoothingType smoothingType = SmoothingType.MIDPOINT;
+    boolean hasFill;
+    DownsampleType downsampleType = DownsampleType.NONE;
+    MinMaxPyramid pyramid;      // null if not enabled
+    boolean rebuildPyramid;     // the values changed in a way the pyramid can't be updated for
+
+    /* Outputs */
+    final PathBuffer line = new PathBuffer();
+    final PathBuffer fill = new PathBuffer();
+    float xOrigin;              // x value that is drawn at the label width
+    float xScale;               // pixels per unit of x
+    float minYCoordinate;
+    float maxYCoordinate;
+    int visibleFirst;           // index of the first value inside the viewport
+    int visibleLast;            // index of the last value inside the viewport
+
+    /* Streaming state, used to extend the path with appended values instead of rebuilding it */
+    long streamOrigin;          // evicted count of the series when the path was last rebuilt
+    long streamEnd;             // number of values ever added to the series, that are in the path
+    float streamScroll;         // how far the path has scrolled left since it was last rebuilt
+
+    boolean hasViewport() {
+        return !Float.isNaN(viewportStart) && !Float.isNaN(viewportEnd) && viewportEnd > viewportStart;
+    }
+
+    float projectX(int index) {
+        return labelWidth + (series.getX(index) - xOrigin) * xScale;
+    }
+
+    float projectY(float value) {
+        return Projection.projectY(value, minY, maxY, height, minYCoordinate, maxYCoordinate);
+    }
+
+    /**
+     * Take a snapshot of the series, reusing the snapshot's arrays
+     * If values were only appended since the last snapshot, only those are copied
+     */
+    void copySeries(FloatSeries source) {
+        if (snapshot == null) {
+            snapshot = new FloatSeries(Math.max(1, source.size()), source.hasXValues());
+        }
+        snapshot.updateFrom(source);
+        series = snapshot;
+    }
+}
@@ -0,0 +1,211 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A series file (see SeriesFile) that is memory mapped, so that a LineItem can render from it directly
+ *
+ * Opening the file only reads the header. The values are paged in by the OS as they are read,
+ * and never copied onto the Java heap. The min and max of a range come from the chunk footer,
+ * so only the values at the edges of the range are read
+ *
+ * The reads don't change the state of the mapped buffer, so the source can be read from a layout thread
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public final class MappedSeriesSource implements SeriesDataSource {
+
+    private final int mSize;
+    private final int mChunkSize;
+
+    /* Only one of the views of each column is used, depending on how the column is stored */
+    private FloatBuffer mFloatValues;
+    private DoubleBuffer mDoubleValues;
+    private FloatBuffer mFloatX;
+    private DoubleBuffer mDoubleX;
+    private LongBuffer mTimestamps;
+    private final long mXOrigin;    // timestamp at x value 0
+
+    private final FloatBuffer mChunkMinMax;  // min and max of each chunk, interleaved
+
+    /**
+     * Memory map a series file
+     * @param file
+     * @throws IOException if the file can't be read, or is not a series file
+     */
+    public MappedSeriesSource(File file) throws IOException {
+        MappedByteBuffer buffer;
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Series files larger than 2GB can't be mapped");
+            }
+            // The mapping stays valid after the file is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } finally {
+            input.close();
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        SeriesFile.Header header = SeriesFile.Header.read(buffer, buffer.capacity(), file);
+        mSize = header.count;
+        mChunkSize = header.chunkSize;
+        mXOrigin = header.xOrigin;
+
+        /* Columns */
+        if (header.hasTimestamps()) {
+            mTimestamps = slice(buffer, header.xOffset, mSize * 8L).asLongBuffer();
+        } else if (header.hasDoubleX()) {
+            mDoubleX = slice(buffer, header.xOffset, mSize * 8L).asDoubleBuffer();
+        } else if (header.hasX()) {
+            mFloatX = slice(buffer, header.xOffset, mSize * 4L).asFloatBuffer();
+        }
+
+        if (header.valueBytes == 8) {
+            mDoubleValues = slice(buffer, header.valuesOffset, mSize * 8L).asDoubleBuffer();
+        } else {
+            mFloatValues = slice(buffer, header.valuesOffset, mSize * 4L).asFloatBuffer();
+        }
+
+        mChunkMinMax = slice(buffer, header.footerOffset, header.chunkCount * 8L).asFloatBuffer();
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public float get(int index) {
+        return mFloatValues != null ? mFloatValues.get(index) : (float) mDoubleValues.get(index);
+    }
+
+    /**
+     * Returns the x value at the index, or the index itself if the file does not have x values
+     * Timestamps are returned relative to the first timestamp
+     * @param index
+     * @return
+     */
+    @Override
+    public float getX(int index) {
+        if (mFloatX != null) return mFloatX.get(index);
+        if (mDoubleX != null) return (float) mDoubleX.get(index);
+        if (mTimestamps != null) return mTimestamps.get(index) - mXOrigin;
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        return index;
+    }
+
+    @Override
+    public boolean hasXValues() {
+        return mFloatX != null || mDoubleX != null || mTimestamps != null;
+    }
+
+    public boolean hasTimestamps() {
+        return mTimestamps != null;
+    }
+
+    /**
+     * Returns the timestamp at the index, for files written with timestamps
+     * @param index
+     * @return
+     */
+    public long getTimestamp(int index) {
+        if (mTimestamps == null) {
+            throw new IllegalStateException("The series file does not have timestamps");
+        }
+        return mTimestamps.get(index);
+    }
+
+    /**
+     * The timestamp at x value 0, for files written with timestamps
+     * @return
+     */
+    public long getXOrigin() {
+        return mXOrigin;
+    }
+
+    /**
+     * Absolute reads, so that the buffers are never changed and can be read from several threads
+     */
+    @Override
+    public void getValues(int start, int count, float[] buffer, int offset) {
+        if (mFloatValues != null) {
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = mFloatValues.get(start + i);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (float) mDoubleValues.get(start + i);
+            }
+        }
+    }
+
+    @Override
+    public void getXValues(int start, int count, float[] buffer, int offset) {
+        for (int i = 0; i < count; i++) {
+            buffer[offset + i] = getX(start + i);
+        }
+    }
+
+    /**
+     * Whole chunks use the footer, so at most two partial chunks are scanned
+     */
+    @Override
+    public float getMin(int start, int end) {
+        return getExtreme(start, end, false);
+    }
+
+    @Override
+    public float getMax(int start, int end) {
+        return getExtreme(start, end, true);
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private float getExtreme(int start, int end, boolean max) {
+        start = Math.max(0, start);
+        end = Math.min(mSize, end);
+        if (start >= end) return Float.NaN;
+
+        float result = get(start);
+        int i = start + 1;
+        while (i < end) {
+            if (i % mChunkSize == 0 && i + mChunkSize <= end) {
+                // A whole chunk
+                float chunk = mChunkMinMax.get(2 * (i / mChunkSize) + (max ? 1 : 0));
+                if (max ? chunk > result : chunk < result) result = chunk;
+                i += mChunkSize;
+            } else {
+                float value = get(i);
+                if (max ? value > result : value < result) result = value;
+                i++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A little endian view of part of the buffer
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, long position, long length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) position);
+        view.limit((int) (position + length));
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
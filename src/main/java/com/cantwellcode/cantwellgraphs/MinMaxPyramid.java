@@ -0,0 +1,256 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.util.Arrays;
+
+/**
+ * Multi-resolution summary of a series, like a mipmap
+ *
+ * Each level splits the values into buckets, and stores the min, max, first and last value of every bucket
+ * Level 0 has BASE_BUCKET_SIZE values per bucket, and every level above it has LEVEL_FACTOR times as many
+ * A line can then be drawn from the coarsest level that still has about one bucket per pixel,
+ * so drawing costs O(width) no matter how many values the series has
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class MinMaxPyramid {
+
+    static final int BASE_BUCKET_SIZE = 8;
+    static final int LEVEL_FACTOR = 4;
+    private static final int BLOCK_SIZE = 4096;    // values read from the series at a time, a multiple of the bucket size
+
+    private float[][] mMin;
+    private float[][] mMax;
+    private float[][] mFirst;
+    private float[][] mLast;
+    private int[] mBucketCounts;
+    private int mLevelCount;
+    private int mSize;      // number of values in the pyramid
+    private final float[] mBlock = new float[BLOCK_SIZE];
+
+    MinMaxPyramid() {
+        mMin = new float[0][];
+        mMax = new float[0][];
+        mFirst = new float[0][];
+        mLast = new float[0][];
+        mBucketCounts = new int[0];
+        mLevelCount = 0;
+        mSize = 0;
+    }
+
+    /**
+     * Build every level from the series, in O(n)
+     * Level 0 is built from the values, and every other level from the level below it
+     * @param series
+     */
+    void build(SeriesDataSource series) {
+        int size = series.size();
+        mSize = size;
+        mLevelCount = 0;
+        if (size == 0) return;
+
+        /* Level 0, reading the values in blocks so that paged sources are read sequentially */
+        int bucketCount = (size + BASE_BUCKET_SIZE - 1) / BASE_BUCKET_SIZE;
+        ensureLevel(0, bucketCount);
+        float[] min = mMin[0];
+        float[] max = mMax[0];
+        float[] first = mFirst[0];
+        float[] last = mLast[0];
+        float[] block = mBlock;
+        for (int blockStart = 0; blockStart < size; blockStart += BLOCK_SIZE) {
+            int blockCount = Math.min(BLOCK_SIZE, size - blockStart);
+            series.getValues(blockStart, blockCount, block, 0);
+
+            for (int start = 0; start < blockCount; start += BASE_BUCKET_SIZE) {
+                int end = Math.min(start + BASE_BUCKET_SIZE, blockCount);
+                int b = (blockStart + start) / BASE_BUCKET_SIZE;
+
+                float value = block[start];
+                float bucketMin = value;
+                float bucketMax = value;
+                for (int i = start + 1; i < end; i++) {
+                    value = block[i];
+                    if (value < bucketMin) bucketMin = value;
+                    if (value > bucketMax) bucketMax = value;
+                }
+
+                min[b] = bucketMin;
+                max[b] = bucketMax;
+                first[b] = block[start];
+                last[b] = value;
+            }
+        }
+        mBucketCounts[0] = bucketCount;
+        mLevelCount = 1;
+
+        /* Every other level combines LEVEL_FACTOR buckets of the level below it, until there is only one bucket */
+        while (mBucketCounts[mLevelCount - 1] > 1) {
+            int below = mLevelCount - 1;
+            int belowCount = mBucketCounts[below];
+            int level = mLevelCount;
+            bucketCount = (belowCount + LEVEL_FACTOR - 1) / LEVEL_FACTOR;
+            ensureLevel(level, bucketCount);
+
+            for (int b = 0; b < bucketCount; b++) {
+                int start = b * LEVEL_FACTOR;
+                int end = Math.min(start + LEVEL_FACTOR, belowCount);
+
+                float bucketMin = mMin[below][start];
+                float bucketMax = mMax[below][start];
+                for (int i = start + 1; i < end; i++) {
+                    if (mMin[below][i] < bucketMin) bucketMin = mMin[below][i];
+                    if (mMax[below][i] > bucketMax) bucketMax = mMax[below][i];
+                }
+
+                mMin[level][b] = bucketMin;
+                mMax[level][b] = bucketMax;
+                mFirst[level][b] = mFirst[below][start];
+                mLast[level][b] = mLast[below][end - 1];
+            }
+            mBucketCounts[level] = bucketCount;
+            mLevelCount++;
+        }
+    }
+
+    /**
+     * Add a value to the end, updating the last bucket of every level in O(levels)
+     * @param value
+     */
+    void append(float value) {
+        int index = mSize;
+        mSize++;
+
+        int bucketSize = BASE_BUCKET_SIZE;
+        for (int level = 0; ; level++) {
+            int bucket = index / bucketSize;
+
+            if (level == mLevelCount) {
+                // A new level is only needed once the level below has more than one bucket
+                if (level > 0 && mBucketCounts[level - 1] <= 1) break;
+                ensureLevel(level, 1);
+                mLevelCount++;
+                if (level == 0) {
+                    mMin[0][0] = value;
+                    mMax[0][0] = value;
+                    mFirst[0][0] = value;
+                    mLast[0][0] = value;
+                    mBucketCounts[0] = 1;
+                } else {
+                    // The first bucket of the new level summarizes the level below
+                    initTopBucket(level);
+                }
+            } else if (index % bucketSize == 0) {
+                ensureLevel(level, bucket + 1);
+                mMin[level][bucket] = value;
+                mMax[level][bucket] = value;
+                mFirst[level][bucket] = value;
+                mLast[level][bucket] = value;
+                mBucketCounts[level] = bucket + 1;
+            } else {
+                if (value < mMin[level][bucket]) mMin[level][bucket] = value;
+                if (value > mMax[level][bucket]) mMax[level][bucket] = value;
+                mLast[level][bucket] = value;
+            }
+
+            bucketSize *= LEVEL_FACTOR;
+        }
+    }
+
+    /**
+     * Choose the coarsest level whose buckets hold no more than the given number of values
+     * @param valuesPerBucket - e.g. twice the number of values per pixel
+     * @return the level, or -1 if even level 0 is too coarse
+     */
+    int chooseLevel(float valuesPerBucket) {
+        int level = -1;
+        int bucketSize = BASE_BUCKET_SIZE;
+        for (int i = 0; i < mLevelCount && bucketSize <= valuesPerBucket; i++) {
+            level = i;
+            bucketSize *= LEVEL_FACTOR;
+        }
+        return level;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    int getLevelCount() {
+        return mLevelCount;
+    }
+
+    int getBucketSize(int level) {
+        int bucketSize = BASE_BUCKET_SIZE;
+        for (int i = 0; i < level; i++) {
+            bucketSize *= LEVEL_FACTOR;
+        }
+        return bucketSize;
+    }
+
+    int getBucketCount(int level) {
+        return mBucketCounts[level];
+    }
+
+    float getMin(int level, int bucket) {
+        return mMin[level][bucket];
+    }
+
+    float getMax(int level, int bucket) {
+        return mMax[level][bucket];
+    }
+
+    float getFirst(int level, int bucket) {
+        return mFirst[level][bucket];
+    }
+
+    float getLast(int level, int bucket) {
+        return mLast[level][bucket];
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    /**
+     * A new top level starts with a single bucket that summarizes every bucket of the level below
+     */
+    private void initTopBucket(int level) {
+        int below = level - 1;
+        int belowCount = mBucketCounts[below];
+
+        float bucketMin = mMin[below][0];
+        float bucketMax = mMax[below][0];
+        for (int i = 1; i < belowCount; i++) {
+            if (mMin[below][i] < bucketMin) bucketMin = mMin[below][i];
+            if (mMax[below][i] > bucketMax) bucketMax = mMax[below][i];
+        }
+
+        mMin[level][0] = bucketMin;
+        mMax[level][0] = bucketMax;
+        mFirst[level][0] = mFirst[below][0];
+        mLast[level][0] = mLast[below][belowCount - 1];
+        mBucketCounts[level] = 1;
+    }
+
+    /**
+     * Make sure the level exists and can hold the given number of buckets
+     */
+    private void ensureLevel(int level, int bucketCount) {
+        if (level >= mMin.length) {
+            int levels = level + 1;
+            mMin = Arrays.copyOf(mMin, levels);
+            mMax = Arrays.copyOf(mMax, levels);
+            mFirst = Arrays.copyOf(mFirst, levels);
+            mLast = Arrays.copyOf(mLast, levels);
+            mBucketCounts = Arrays.copyOf(mBucketCounts, levels);
+        }
+
+        float[] min = mMin[level];
+        if (min == null || min.length < bucketCount) {
+            int capacity = Math.max(bucketCount, min == null ? 4 : min.length + (min.length >> 1) + 1);
+            mMin[level] = min == null ? new float[capacity] : Arrays.copyOf(min, capacity);
+            mMax[level] = mMax[level] == null ? new float[capacity] : Arrays.copyOf(mMax[level], capacity);
+            mFirst[level] = mFirst[level] == null ? new float[capacity] : Arrays.copyOf(mFirst[level], capacity);
+            mLast[level] = mLast[level] == null ? new float[capacity] : Arrays.copyOf(mLast[level], capacity);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A series file (see SeriesFile) that is read in pages, keeping only the most recently used pages in memory
+ *
+ * Unlike MappedSeriesSource this works for files of any size, and bounds the memory that is used:
+ * at most maxPages pages of pageSize values (and x values) are kept, and the arrays of the least
+ * recently used page are reused for the next page that is read
+ * The min and max of a range come from the chunk footer, which is read when the file is opened
+ *
+ * Reads are synchronized, so the source can be read from a layout thread
+ * Close the source when it is no longer drawn
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public final class PagedSeriesSource implements SeriesDataSource, Closeable {
+
+    public static final int DEFAULT_PAGE_SIZE = 16384;
+    public static final int DEFAULT_MAX_PAGES = 16;
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final SeriesFile.Header mHeader;
+    private final int mSize;
+    private final int mPageSize;
+    private final int mMaxPages;
+
+    private final float[] mChunkMinMax;    // min and max of each chunk, interleaved
+
+    /* Least recently used first */
+    private final LinkedHashMap<Integer, Page> mPages;
+    private ByteBuffer mReadBuffer;
+
+    private static final class Page {
+        final float[] values;
+        final float[] x;    // null if the file does not have x values
+
+        Page(int pageSize, boolean hasX) {
+            values = new float[pageSize];
+            x = hasX ? new float[pageSize] : null;
+        }
+    }
+
+    /**
+     * Open a series file with the default page size and number of pages
+     * @param file
+     * @throws IOException if the file can't be read, or is not a series file
+     */
+    public PagedSeriesSource(File file) throws IOException {
+        this(file, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Open a series file
+     * @param file
+     * @param pageSize - number of values read at a time
+     * @param maxPages - number of pages kept in memory
+     * @throws IOException if the file can't be read, or is not a series file
+     */
+    public PagedSeriesSource(File file, int pageSize, int maxPages) throws IOException {
+        if (pageSize <= 0 || maxPages <= 0) {
+            throw new IllegalArgumentException("pageSize and maxPages must be positive");
+        }
+        mPageSize = pageSize;
+        mMaxPages = maxPages;
+
+        mFile = new RandomAccessFile(file, "r");
+        try {
+            mChannel = mFile.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(SeriesFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long length = mChannel.size();
+            if (length >= SeriesFile.HEADER_SIZE) {
+                readFully(header, 0);
+            }
+            mHeader = SeriesFile.Header.read(header, length, file);
+            mSize = mHeader.count;
+
+            /* Footer */
+            mChunkMinMax = new float[2 * mHeader.chunkCount];
+            ByteBuffer footer = ByteBuffer.allocate(mChunkMinMax.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(footer, mHeader.footerOffset);
+            footer.flip();
+            footer.asFloatBuffer().get(mChunkMinMax);
+        } catch (IOException e) {
+            mFile.close();
+            throw e;
+        }
+
+        mPages = new LinkedHashMap<Integer, Page>(16, 0.75f, true);
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public synchronized float get(int index) {
+        checkIndex(index);
+        return getPage(index / mPageSize).values[index % mPageSize];
+    }
+
+    /**
+     * Returns the x value at the index, or the index itself if the file does not have x values
+     * Timestamps are returned relative to the first timestamp
+     * @param index
+     * @return
+     */
+    @Override
+    public synchronized float getX(int index) {
+        checkIndex(index);
+        if (!mHeader.hasX()) return index;
+        return getPage(index / mPageSize).x[index % mPageSize];
+    }
+
+    @Override
+    public boolean hasXValues() {
+        return mHeader.hasX();
+    }
+
+    /**
+     * The timestamp at x value 0, for files written with timestamps
+     * @return
+     */
+    public long getXOrigin() {
+        return mHeader.xOrigin;
+    }
+
+    /**
+     * Copies a page at a time
+     */
+    @Override
+    public synchronized void getValues(int start, int count, float[] buffer, int offset) {
+        checkRange(start, count);
+        while (count > 0) {
+            int pageOffset = start % mPageSize;
+            int n = Math.min(count, mPageSize - pageOffset);
+            System.arraycopy(getPage(start / mPageSize).values, pageOffset, buffer, offset, n);
+            start += n;
+            offset += n;
+            count -= n;
+        }
+    }
+
+    @Override
+    public synchronized void getXValues(int start, int count, float[] buffer, int offset) {
+        checkRange(start, count);
+        if (!mHeader.hasX()) {
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = start + i;
+            }
+            return;
+        }
+        while (count > 0) {
+            int pageOffset = start % mPageSize;
+            int n = Math.min(count, mPageSize - pageOffset);
+            System.arraycopy(getPage(start / mPageSize).x, pageOffset, buffer, offset, n);
+            start += n;
+            offset += n;
+            count -= n;
+        }
+    }
+
+    /**
+     * Whole chunks use the footer, so only the partial chunks at the edges are read
+     */
+    @Override
+    public synchronized float getMin(int start, int end) {
+        return getExtreme(start, end, false);
+    }
+
+    @Override
+    public synchronized float getMax(int start, int end) {
+        return getExtreme(start, end, true);
+    }
+
+    /**
+     * Close the file, and drop the pages
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        mPages.clear();
+        mFile.close();
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private float getExtreme(int start, int end, boolean max) {
+        start = Math.max(0, start);
+        end = Math.min(mSize, end);
+        if (start >= end) return Float.NaN;
+
+        int chunkSize = mHeader.chunkSize;
+        float result = get(start);
+        int i = start + 1;
+        while (i < end) {
+            if (i % chunkSize == 0 && i + chunkSize <= end) {
+                // A whole chunk
+                float chunk = mChunkMinMax[2 * (i / chunkSize) + (max ? 1 : 0)];
+                if (max ? chunk > result : chunk < result) result = chunk;
+                i += chunkSize;
+            } else {
+                float value = get(i);
+                if (max ? value > result : value < result) result = value;
+                i++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the page, reading it if it isn't in memory
+     * The least recently used page is evicted once there are maxPages, and its arrays reused
+     */
+    private Page getPage(int pageIndex) {
+        Page page = mPages.get(pageIndex);
+        if (page != null) return page;
+
+        if (mPages.size() >= mMaxPages) {
+            Iterator<Map.Entry<Integer, Page>> eldest = mPages.entrySet().iterator();
+            page = eldest.next().getValue();
+            eldest.remove();
+        } else {
+            page = new Page(mPageSize, mHeader.hasX());
+        }
+
+        try {
+            readPage(page, pageIndex);
+        } catch (IOException e) {
+            // The file was readable when it was opened, so this is unexpected
+            throw new IllegalStateException("Failed to read page " + pageIndex + " of the series file", e);
+        }
+        mPages.put(pageIndex, page);
+        return page;
+    }
+
+    private void readPage(Page page, int pageIndex) throws IOException {
+        int start = pageIndex * mPageSize;
+        int count = Math.min(mPageSize, mSize - start);
+
+        /* Values */
+        ByteBuffer buffer = readColumn(mHeader.valuesOffset, mHeader.valueBytes, start, count);
+        if (mHeader.valueBytes == 8) {
+            for (int i = 0; i < count; i++) {
+                page.values[i] = (float) buffer.getDouble();
+            }
+        } else {
+            buffer.asFloatBuffer().get(page.values, 0, count);
+        }
+
+        /* X values */
+        if (!mHeader.hasX()) return;
+        buffer = readColumn(mHeader.xOffset, mHeader.xBytes, start, count);
+        if (mHeader.hasTimestamps()) {
+            long origin = mHeader.xOrigin;
+            for (int i = 0; i < count; i++) {
+                page.x[i] = buffer.getLong() - origin;
+            }
+        } else if (mHeader.hasDoubleX()) {
+            for (int i = 0; i < count; i++) {
+                page.x[i] = (float) buffer.getDouble();
+            }
+        } else {
+            buffer.asFloatBuffer().get(page.x, 0, count);
+        }
+    }
+
+    /**
+     * Read part of a column into the reusable read buffer, and return it ready to be read
+     */
+    private ByteBuffer readColumn(long columnOffset, int bytesPerValue, int start, int count) throws IOException {
+        int length = count * bytesPerValue;
+        if (mReadBuffer == null || mReadBuffer.capacity() < length) {
+            mReadBuffer = ByteBuffer.allocate(mPageSize * 8).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        mReadBuffer.clear();
+        mReadBuffer.limit(length);
+        readFully(mReadBuffer, columnOffset + (long) start * bytesPerValue);
+        mReadBuffer.flip();
+        return mReadBuffer;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = mChannel.read(buffer, position);
+            if (read < 0) throw new EOFException("Unexpected end of the series file");
+            position += read;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+
+    private void checkRange(int start, int count) {
+        if (start < 0 || count < 0 || start + count > mSize) {
+            throw new IndexOutOfBoundsException("Range: " + start + " + " + count + ", Size: " + mSize);
+        }
+    }
+}
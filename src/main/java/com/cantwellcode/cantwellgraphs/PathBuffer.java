@@ -0,0 +1,213 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.util.Arrays;
+
+/**
+ * A path as primitive arrays of verbs and coordinates, so that geometry can be built without the Android framework
+ *
+ * The layout core builds its paths into buffers, and each renderer replays them into its own path type
+ * (an android.graphics.Path on a device). The buffers are reused, and only grow when a path has more points
+ * The bounds of every coordinate, including control points, are kept as the path is built
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class PathBuffer {
+
+    static final byte MOVE = 0;
+    static final byte LINE = 1;
+    static final byte QUAD = 2;     // control point, end point
+    static final byte CUBIC = 3;    // two control points, end point
+    static final byte CLOSE = 4;
+
+    private byte[] mVerbs;
+    private float[] mCoords;    // x, y pairs, in the order the verbs use them
+    private int mVerbCount;
+    private int mCoordCount;
+
+    private float mLeft;
+    private float mTop;
+    private float mRight;
+    private float mBottom;
+
+    PathBuffer() {
+        mVerbs = new byte[16];
+        mCoords = new float[32];
+        rewind();
+    }
+
+    /**
+     * Clear the path, keeping its arrays
+     */
+    void rewind() {
+        mVerbCount = 0;
+        mCoordCount = 0;
+        mLeft = Float.POSITIVE_INFINITY;
+        mTop = Float.POSITIVE_INFINITY;
+        mRight = Float.NEGATIVE_INFINITY;
+        mBottom = Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Make sure the path can hold the given number of verbs, and coordinates (x and y counted separately),
+     * without growing while it is built
+     */
+    void ensureCapacity(int verbs, int coords) {
+        if (mVerbs.length < verbs) mVerbs = Arrays.copyOf(mVerbs, verbs);
+        if (mCoords.length < coords) mCoords = Arrays.copyOf(mCoords, coords);
+    }
+
+    void moveTo(float x, float y) {
+        addVerb(MOVE, 2);
+        addPoint(x, y);
+    }
+
+    void lineTo(float x, float y) {
+        addVerb(LINE, 2);
+        addPoint(x, y);
+    }
+
+    void quadTo(float x1, float y1, float x2, float y2) {
+        addVerb(QUAD, 4);
+        addPoint(x1, y1);
+        addPoint(x2, y2);
+    }
+
+    void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        addVerb(CUBIC, 6);
+        addPoint(x1, y1);
+        addPoint(x2, y2);
+        addPoint(x3, y3);
+    }
+
+    void close() {
+        addVerb(CLOSE, 0);
+    }
+
+    /**
+     * Move the end point of the last verb, like Path.setLastPoint
+     * The bounds still include the point's old position, since they only ever grow
+     * @param x
+     * @param y
+     */
+    void setLastPoint(float x, float y) {
+        if (mCoordCount == 0) {
+            throw new IllegalStateException("The path has no points");
+        }
+        mCoords[mCoordCount - 2] = x;
+        mCoords[mCoordCount - 1] = y;
+        includeInBounds(x, y);
+    }
+
+    /**
+     * Make this path a copy of the source, reusing its arrays if they are large enough
+     * @param source
+     */
+    void set(PathBuffer source) {
+        ensureCapacity(source.mVerbCount, source.mCoordCount);
+        System.arraycopy(source.mVerbs, 0, mVerbs, 0, source.mVerbCount);
+        System.arraycopy(source.mCoords, 0, mCoords, 0, source.mCoordCount);
+        mVerbCount = source.mVerbCount;
+        mCoordCount = source.mCoordCount;
+        mLeft = source.mLeft;
+        mTop = source.mTop;
+        mRight = source.mRight;
+        mBottom = source.mBottom;
+    }
+
+    /**
+     * Add the verbs of the source from fromVerb on, with their coordinates, to the end of this path
+     * The bounds grow by the source's bounds, so the source should not have points before fromVerb
+     * outside of the points that are copied or already in this path
+     * @param source
+     * @param fromVerb  - first verb to copy
+     * @param fromCoord - index of the first coordinate that verb uses
+     */
+    void append(PathBuffer source, int fromVerb, int fromCoord) {
+        int verbs = source.mVerbCount - fromVerb;
+        int coords = source.mCoordCount - fromCoord;
+        if (verbs <= 0) return;
+
+        if (mVerbs.length < mVerbCount + verbs) {
+            mVerbs = Arrays.copyOf(mVerbs, Math.max(mVerbCount + verbs, mVerbs.length * 2));
+        }
+        if (mCoords.length < mCoordCount + coords) {
+            mCoords = Arrays.copyOf(mCoords, Math.max(mCoordCount + coords, mCoords.length * 2));
+        }
+        System.arraycopy(source.mVerbs, fromVerb, mVerbs, mVerbCount, verbs);
+        System.arraycopy(source.mCoords, fromCoord, mCoords, mCoordCount, coords);
+        mVerbCount += verbs;
+        mCoordCount += coords;
+        if (source.mLeft < mLeft) mLeft = source.mLeft;
+        if (source.mTop < mTop) mTop = source.mTop;
+        if (source.mRight > mRight) mRight = source.mRight;
+        if (source.mBottom > mBottom) mBottom = source.mBottom;
+    }
+
+    boolean isEmpty() {
+        return mVerbCount == 0;
+    }
+
+    int getVerbCount() {
+        return mVerbCount;
+    }
+
+    int getCoordCount() {
+        return mCoordCount;
+    }
+
+    byte getVerb(int index) {
+        return mVerbs[index];
+    }
+
+    /**
+     * The coordinates, which are only valid up to getCoordCount(). Not a copy, so that renderers can replay it directly
+     */
+    float[] getCoords() {
+        return mCoords;
+    }
+
+    /* Bounds of every coordinate, or infinite (left > right) if the path is empty */
+
+    float getLeft() {
+        return mLeft;
+    }
+
+    float getTop() {
+        return mTop;
+    }
+
+    float getRight() {
+        return mRight;
+    }
+
+    float getBottom() {
+        return mBottom;
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private void addVerb(byte verb, int coords) {
+        if (mVerbCount == mVerbs.length) {
+            mVerbs = Arrays.copyOf(mVerbs, mVerbs.length * 2);
+        }
+        if (mCoordCount + coords > mCoords.length) {
+            mCoords = Arrays.copyOf(mCoords, Math.max(mCoords.length * 2, mCoordCount + coords));
+        }
+        mVerbs[mVerbCount++] = verb;
+    }
+
+    private void addPoint(float x, float y) {
+        mCoords[mCoordCount++] = x;
+        mCoords[mCoordCount++] = y;
+        includeInBounds(x, y);
+    }
+
+    private void includeInBounds(float x, float y) {
+        if (x < mLeft) mLeft = x;
+        if (x > mRight) mRight = x;
+        if (y < mTop) mTop = y;
+        if (y > mBottom) mBottom = y;
+    }
+}
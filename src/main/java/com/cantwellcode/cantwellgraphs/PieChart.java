@@ -6,10 +6,10 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.RectF;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -34,14 +34,29 @@ public class PieChart extends View {
     private int mPadLeft;
     private int mPadRight;
 
-    private float mRadius;
-
     private List<PieSection> mPieSections;
-    private float mSum;
+
+    /* Slice angles and label positions, calculated by the platform independent layout */
+    private PieLayout mLayout;
+    private float[] mValues;
+    private RectF mArcRect;
+
+    /* Slice table: the layout, label text and label bounds of the sections, which is only rebuilt when
+       the sections, their labels or the size change, so redrawing an unchanged pie only draws */
+    private boolean mTableValid;
+    private int mTableCount;
+    private PieSection[] mTableSections;    // sections the table was built for
+    private int[] mTableLabelVersions;      // label version of each section when the table was built
+    private String[] mLabelText;            // null if the section has no label
+    private float[] mLabelBaselines;
+    private float[] mLabelBounds;           // left, top, right, bottom of each label
+    private Paint mEmptyPaint;
 
     private int mBackgroundColor;
     private int mEmptyColor;
 
+    private RenderMetrics mMetrics;     // null unless the user opts in to timing each frame
+
     /**
      * *************************************
      * Initialization
@@ -67,7 +82,16 @@ public class PieChart extends View {
         mPieSections = new ArrayList<>();
         mBackgroundColor = Color.WHITE;
         mEmptyColor = Color.DKGRAY;
-        mSum = 0;
+        mLayout = new PieLayout();
+        mValues = new float[0];
+        mArcRect = new RectF();
+
+        mTableSections = new PieSection[0];
+        mTableLabelVersions = new int[0];
+        mLabelText = new String[0];
+        mLabelBaselines = new float[0];
+        mLabelBounds = new float[0];
+        mEmptyPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
     }
 
     /**
@@ -76,30 +100,19 @@ public class PieChart extends View {
      * **************************************
      */
 
-    private float centerX() {
-        return (mWidth / 2) + mPadLeft;
-    }
-
-    private float centerY() {
-        return (mHeight / 2) + mPadTop;
-    }
-
     public void clearChart() {
         mPieSections.clear();
-        mSum = 0;
+        mTableValid = false;
     }
 
     public void addPieItem(PieSection item) {
         mPieSections.add(item);
-        mSum += item.getValue();
+        mTableValid = false;
     }
 
     public void setPieItems(List<PieSection> items) {
         mPieSections = items;
-        mSum = 0;
-        for (PieSection item : items) {
-            mSum += item.getValue();
-        }
+        mTableValid = false;
     }
 
     public void setBackgroundColor(int color) {
@@ -110,111 +123,172 @@ public class PieChart extends View {
         mEmptyColor = color;
     }
 
+    /**
+     * Time each frame's stages into the given metrics, and mark them as sections in system traces
+     * The metrics' listener is called at the end of every frame
+     * @param metrics - or null to stop timing
+     */
+    public void setRenderMetrics(RenderMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    public RenderMetrics getRenderMetrics() {
+        return mMetrics;
+    }
+
     private void drawArc(Canvas canvas, Paint paint, float startDegree, float angle) {
-        RectF arc = new RectF(centerX() - mRadius, centerY() - mRadius, centerX() + mRadius, centerY() + mRadius);
-        canvas.drawArc(arc, startDegree, angle, true, paint);
+        canvas.drawArc(mArcRect, startDegree, angle, true, paint);
     }
 
     public void drawChart() {
+        mTableValid = false;
         invalidate();
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
-        Log.d(LOG, "onDraw");
+        if (GraphLog.DEBUG) GraphLog.d(LOG, "onDraw");
 
-        canvas.drawColor(mBackgroundColor);
+        RenderMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginFrame();
+            metrics.begin(RenderStage.BOUNDS);
+        }
 
-        if (mSum == 0) {
-            Paint emptyPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
-            emptyPaint.setColor(mEmptyColor);
-            drawArc(canvas, emptyPaint, 0, 360);
-        } else {
+        if (!isTableValid()) buildTable();
 
-            float startDegree = 0;
-            for (PieSection item : mPieSections) {
+        if (metrics != null) {
+            metrics.end(RenderStage.BOUNDS);
+            metrics.begin(RenderStage.DRAW);
+        }
 
-                if (item.getValue() > 0) {
+        canvas.drawColor(mBackgroundColor);
 
-                    float angle = item.getValue() * 360 / mSum;
-                    drawArc(canvas, item.getFillPaint(), startDegree, angle);
-                    drawArc(canvas, item.getStrokePaint(), startDegree, angle);
+        if (mLayout.sum == 0) {
+            mEmptyPaint.setColor(mEmptyColor);
+            drawArc(canvas, mEmptyPaint, 0, 360);
+        } else {
+            int count = mTableCount;
+            for (int i = 0; i < count; i++) {
+                PieSection item = mTableSections[i];
+                float angle = mLayout.sweepAngles[i];
+                if (angle > 0) {
+                    drawArc(canvas, item.getFillPaint(), mLayout.startAngles[i], angle);
+                    drawArc(canvas, item.getStrokePaint(), mLayout.startAngles[i], angle);
+                }
+            }
 
-                    startDegree += angle;
+            if (metrics != null) metrics.begin(RenderStage.LABELS);
+            for (int i = 0; i < count; i++) {
+                if (mLabelText[i] != null) {
+                    drawLabel(canvas, mTableSections[i], i);
                 }
             }
+            if (metrics != null) metrics.end(RenderStage.LABELS);
+        }
 
-            for (PieSection item : mPieSections) {
-                if (item.getValue() > 0) {
-                    float angle = item.getValue() * 360 / mSum;
+        if (metrics != null) {
+            metrics.end(RenderStage.DRAW);
+            metrics.endFrame(this);
+        }
+    }
 
-                    if (item.hasLabel()) {
-                        drawLabel(canvas, item, startDegree, angle);
-                    }
+    /**
+     * Whether the slice table was built for the current sections and labels
+     * Values and names of sections can't change, so comparing the sections themselves is enough
+     */
+    private boolean isTableValid() {
+        if (!mTableValid || mPieSections.size() != mTableCount) return false;
+        for (int i = 0; i < mTableCount; i++) {
+            PieSection item = mPieSections.get(i);
+            if (item != mTableSections[i] || item.getLabelVersion() != mTableLabelVersions[i]) return false;
+        }
+        return true;
+    }
 
-                    startDegree += angle;
-                }
+    /**
+     * Calculate the slices from the current values of the sections, and format and measure their labels
+     */
+    private void buildTable() {
+        int count = mPieSections.size();
+        ensureTableCapacity(count);
+        for (int i = 0; i < count; i++) {
+            PieSection item = mPieSections.get(i);
+            mTableSections[i] = item;
+            mTableLabelVersions[i] = item.getLabelVersion();
+            mValues[i] = item.getValue();
+        }
+        for (int i = count; i < mTableCount; i++) {
+            mTableSections[i] = null;   // don't keep removed sections alive
+        }
+        mTableCount = count;
+        mLayout.layout(mValues, count);
+
+        float r = mLayout.radius;
+        mArcRect.set(mLayout.centerX - r, mLayout.centerY - r, mLayout.centerX + r, mLayout.centerY + r);
+
+        for (int i = 0; i < count; i++) {
+            PieSection item = mTableSections[i];
+            if (mLayout.sweepAngles[i] > 0 && item.hasLabel()) {
+                layoutLabel(item, i);
+            } else {
+                mLabelText[i] = null;
             }
         }
+        mTableValid = true;
     }
 
-    private void drawLabel(Canvas canvas, PieSection item, float startDegree, float angle) {
+    /**
+     * Format the label, and find its baseline and bounds
+     */
+    private void layoutLabel(PieSection item, int index) {
 
-        /* Find the Label Position */
+        /* Move the baseline so that the text is centered on the label position */
 
-        float deg = (startDegree + startDegree + angle) / 2;
-        float r = mRadius * 3 / 5;
-        double radians = deg * Math.PI / 180;
-        float x;
-        float y;
-        if (mPieSections.size() > 1) {
-            x = (float) (r * Math.cos(radians)) + centerX();
-            y = (float) (r * Math.sin(radians)) + centerY() - ((item.getLabelPaint().descent() + item.getLabelPaint().ascent()) / 2);
-        } else {
-            x = centerX();
-            y = centerY();
+        Paint labelPaint = item.getLabelPaint();
+        float x = mLayout.labelX[index];
+        float y = mLayout.labelY[index];
+        float ascent = labelPaint.ascent();
+        float descent = labelPaint.descent();
+        if (mLayout.count > 1) {
+            y -= (descent + ascent) / 2;
         }
 
-        /* Draw the correct label at the position */
-
-        String labelString = "";
-        switch (item.getLabelType()) {
-            case NAME:
-                labelString = item.getName();
-                break;
-            case NAME_then_VALUE:
-                labelString = String.format("%s %.1f", item.getName(), item.getValue());
-                break;
-            case NAME_then_PERCENTAGE:
-                float p1 = item.getValue() * 100 / mSum;
-                labelString = String.format("%s %.1f%s", item.getName(), p1, "%");
-                break;
-            case VALUE:
-                labelString = String.format("%.1f", item.getValue());
-                break;
-            case VALUE_then_NAME:
-                labelString = String.format("%.1f %s", item.getValue(), item.getName());
-                break;
-            case VALUE_then_PERCENTAGE:
-                float p2 = item.getValue() * 100 / mSum;
-                labelString = String.format("%.1f %.1f%s", item.getValue(), p2, "%");
-                break;
-            case PERCENTAGE:
-                float p3 = item.getValue() * 100 / mSum;
-                labelString = String.format("%.1f%s", p3, "%");
-                break;
-            case PERCENTAGE_then_NAME:
-                float p4 = item.getValue() * 100 / mSum;
-                labelString = String.format("%.1f%s %s", p4, "%", item.getName());
-                break;
-            case PERCENTAGE_then_VALUE:
-                float p5 = item.getValue() * 100 / mSum;
-                labelString = String.format("%.1f%s %.1f", p5, "%", item.getValue());
-                break;
-        }
-        canvas.drawText(labelString, x, y, item.getLabelPaint());
+        String labelString = PieLayout.formatLabel(item.getLabelType(), item.getName(), item.getValue(),
+                mLayout.percentages[index]);
+        float halfWidth = labelPaint.measureText(labelString) / 2;
+
+        mLabelText[index] = labelString;
+        mLabelBaselines[index] = y;
+        mLabelBounds[4 * index] = x - halfWidth;
+        mLabelBounds[4 * index + 1] = y + ascent;
+        mLabelBounds[4 * index + 2] = x + halfWidth;
+        mLabelBounds[4 * index + 3] = y + descent;
+    }
+
+    private void drawLabel(Canvas canvas, PieSection item, int index) {
+        int b = 4 * index;
+        if (canvas.quickReject(mLabelBounds[b], mLabelBounds[b + 1], mLabelBounds[b + 2], mLabelBounds[b + 3],
+                Canvas.EdgeType.AA)) return;
 
-        Log.d(LOG, "Drawing Label at " + x + ", " + y);
+        float x = mLayout.labelX[index];
+        float y = mLabelBaselines[index];
+        canvas.drawText(mLabelText[index], x, y, item.getLabelPaint());
+
+        if (GraphLog.TRACE) GraphLog.trace(LOG, "label", "x", x, "y", y);
+    }
+
+    private void ensureTableCapacity(int count) {
+        if (mValues.length < count) {
+            mValues = new float[count];
+        }
+        if (mTableSections.length < count) {
+            mTableSections = Arrays.copyOf(mTableSections, count);
+            mTableLabelVersions = new int[count];
+            mLabelText = new String[count];
+            mLabelBaselines = new float[count];
+            mLabelBounds = new float[4 * count];
+        }
     }
 
     @Override
@@ -228,8 +302,9 @@ public class PieChart extends View {
         mWidth = w - (mPadLeft + mPadRight);
         mHeight = h - (mPadBottom + mPadTop);
 
-        mRadius = mWidth < mHeight ? mWidth / 2 : mHeight / 2;
+        mLayout.setBounds(mWidth, mHeight, mPadLeft, mPadTop);
+        mTableValid = false;
 
-        Log.d(LOG, "Width: " + mWidth + " Height: " + mHeight);
+        if (GraphLog.DEBUG) GraphLog.d(LOG, "Width: " + mWidth + " Height: " + mHeight);
     }
 }
@@ -0,0 +1,133 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * The angles of a pie's slices and where their labels go, without the Android framework
+ *
+ * Slices start at 0 degrees (3 o'clock) and go clockwise, in the order the sections were added
+ * Sections without a positive value don't get a slice. The arrays are reused, and only grow with the number of sections
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class PieLayout {
+
+    // Labels are drawn this far from the center, as a fraction of the radius
+    static final float LABEL_RADIUS = 3f / 5;
+
+    /* Bounds, set by setBounds */
+    float centerX;
+    float centerY;
+    float radius;
+
+    /* Slices, set by layout. Sections without a slice have a sweep angle of 0 */
+    int count;
+    float sum;
+    float[] startAngles = new float[0];     // degrees
+    float[] sweepAngles = new float[0];     // degrees
+    float[] percentages = new float[0];
+    float[] labelX = new float[0];
+    float[] labelY = new float[0];          // the center of the label, not its baseline
+
+    /**
+     * Fit the pie in the middle of the area inside the padding
+     * @param width     - width inside the padding
+     * @param height    - height inside the padding
+     * @param padLeft
+     * @param padTop
+     */
+    void setBounds(int width, int height, int padLeft, int padTop) {
+        centerX = (width / 2) + padLeft;
+        centerY = (height / 2) + padTop;
+        radius = width < height ? width / 2 : height / 2;
+    }
+
+    /**
+     * Calculate the slices of the sections
+     * @param values - value of each section
+     * @param count  - number of sections
+     */
+    void layout(float[] values, int count) {
+        ensureCapacity(count);
+        this.count = count;
+
+        sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+
+        float startDegree = 0;
+        float labelRadius = radius * LABEL_RADIUS;
+        for (int i = 0; i < count; i++) {
+            float value = values[i];
+            startAngles[i] = startDegree;
+
+            if (value > 0 && sum != 0) {
+                float angle = value * 360 / sum;
+                sweepAngles[i] = angle;
+                percentages[i] = value * 100 / sum;
+
+                /* A single section is labelled in the center, otherwise the label is in the middle of the slice */
+                if (count > 1) {
+                    double radians = (startDegree + startDegree + angle) / 2 * Math.PI / 180;
+                    labelX[i] = (float) (labelRadius * Math.cos(radians)) + centerX;
+                    labelY[i] = (float) (labelRadius * Math.sin(radians)) + centerY;
+                } else {
+                    labelX[i] = centerX;
+                    labelY[i] = centerY;
+                }
+                startDegree += angle;
+            } else {
+                sweepAngles[i] = 0;
+                percentages[i] = 0;
+                labelX[i] = centerX;
+                labelY[i] = centerY;
+            }
+        }
+    }
+
+    /**
+     * The text of a section's label
+     * @param type
+     * @param name
+     * @param value
+     * @param percentage - the section's share of the pie, from 0 to 100
+     * @return
+     */
+    static String formatLabel(PieLabelType type, String name, float value, float percentage) {
+        switch (type) {
+            case NAME:
+                return name;
+            case NAME_then_VALUE:
+                return String.format("%s %.1f", name, value);
+            case NAME_then_PERCENTAGE:
+                return String.format("%s %.1f%s", name, percentage, "%");
+            case VALUE:
+                return String.format("%.1f", value);
+            case VALUE_then_NAME:
+                return String.format("%.1f %s", value, name);
+            case VALUE_then_PERCENTAGE:
+                return String.format("%.1f %.1f%s", value, percentage, "%");
+            case PERCENTAGE:
+                return String.format("%.1f%s", percentage, "%");
+            case PERCENTAGE_then_NAME:
+                return String.format("%.1f%s %s", percentage, "%", name);
+            case PERCENTAGE_then_VALUE:
+                return String.format("%.1f%s %.1f", percentage, "%", value);
+            default:
+                return "";
+        }
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private void ensureCapacity(int count) {
+        if (startAngles.length < count) {
+            startAngles = new float[count];
+            sweepAngles = new float[count];
+            percentages = new float[count];
+            labelX = new float[count];
+            labelY = new float[count];
+        }
+    }
+}
@@ -20,6 +20,7 @@ public class PieSection {
 
     private PieLabelType mLabelType;
     private boolean mShowLabel;
+    private int mLabelVersion;      // changes whenever the label's text, size or visibility changes
 
     /**
      * Constructor
@@ -67,6 +68,7 @@ public class PieSection {
 
     public void setLabelType(PieLabelType type) {
         mLabelType = type;
+        mLabelVersion++;
     }
 
     public void setLabelColor(int color) {
@@ -75,10 +77,12 @@ public class PieSection {
 
     public void setLabelSize(float size) {
         mLabelPaint.setTextSize(size);
+        mLabelVersion++;
     }
 
     public void showLabel(boolean show) {
         mShowLabel = show;
+        mLabelVersion++;
     }
 
     /*
@@ -108,4 +112,11 @@ public class PieSection {
     protected boolean hasLabel() {
         return mShowLabel;
     }
+
+    /**
+     * The chart compares this with the version it laid the label out for, to know when to lay it out again
+     */
+    int getLabelVersion() {
+        return mLabelVersion;
+    }
 }
@@ -25,6 +25,7 @@ public class PointHighlight {
     private boolean mShowValue;
 
     private Point mPoint;
+    private String mValueText;  // text displayed for the current point, created once per point
 
     private ValueDisplay mValueDisplay;
 
@@ -54,6 +55,8 @@ public class PointHighlight {
         setTextSize(20);
 
         mValueDisplay = null;
+
+        mRect = new RectF();
     }
 
     public void update(Point point) {
@@ -61,7 +64,8 @@ public class PointHighlight {
         float x = mPoint.x;
         float y = mPoint.y;
 
-        mRect = new RectF(x - mRadius, y - mRadius, x + mRadius, y + mRadius);
+        mRect.set(x - mRadius, y - mRadius, x + mRadius, y + mRadius);
+        mValueText = null;
     }
 
     /****************************************
@@ -92,7 +96,28 @@ public class PointHighlight {
         mRadius = radius;
     }
 
-    public void addCustomValueDisplay(ValueDisplay vs) { mValueDisplay = vs; }
+    /**
+     * Add the area drawn by the highlight (including its stroke and value text) to the given rectangle,
+     * so that the graph only needs to redraw that area when the highlight moves
+     * @param bounds
+     */
+    void unionBounds(RectF bounds) {
+        if (mPoint == null) return;
+
+        float stroke = mHasStroke ? mStrokePaint.getStrokeWidth() / 2 : 0;
+        bounds.union(mRect.left - stroke, mRect.top - stroke, mRect.right + stroke, mRect.bottom + stroke);
+
+        if (mShowValue) {
+            float halfWidth = mTextPaint.measureText(getValueText()) / 2;
+            float y = getTextBaseline();
+            bounds.union(mPoint.x - halfWidth, y + mTextPaint.ascent(), mPoint.x + halfWidth, y + mTextPaint.descent());
+        }
+    }
+
+    public void addCustomValueDisplay(ValueDisplay vs) {
+        mValueDisplay = vs;
+        mValueText = null;
+    }
 
     public void draw(Canvas canvas) {
         if (mPoint != null) {
@@ -101,17 +126,28 @@ public class PointHighlight {
             if (mHasStroke)
                 canvas.drawCircle(mPoint.x, mPoint.y, mRadius, mStrokePaint);
             if (mShowValue) {
-                float x = mPoint.x;
-                float y = mPoint.y - ((mTextPaint.descent() + mTextPaint.ascent()) / 2);
-                if (mValueDisplay == null) {
-                    canvas.drawText(getValue(), x, y, mTextPaint);
-                } else {
-                    canvas.drawText(mValueDisplay.setHighlightValue(mPoint), x, y, mTextPaint);
-                }
+                canvas.drawText(getValueText(), mPoint.x, getTextBaseline(), mTextPaint);
             }
         }
     }
 
+    /**
+     * The text displayed for the current point, which is only created once per point
+     */
+    private String getValueText() {
+        if (mValueText == null) {
+            mValueText = mValueDisplay == null ? getValue() : mValueDisplay.setHighlightValue(mPoint);
+        }
+        return mValueText;
+    }
+
+    /**
+     * The baseline that vertically centers the value text on the point
+     */
+    private float getTextBaseline() {
+        return mPoint.y - ((mTextPaint.descent() + mTextPaint.ascent()) / 2);
+    }
+
     private String getValue() {
         return String.valueOf(mPoint.value);
     }
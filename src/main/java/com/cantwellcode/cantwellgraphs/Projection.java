@@ -0,0 +1,54 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * How values are projected to y coordinates, shared by every item and renderer
+ *
+ * The values between minY and maxY are stretched between the min and max y coordinate, which are measured
+ * up from the bottom of the graph. Padding leaves a tenth of the height free at the top or bottom
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class Projection {
+
+    private Projection() {}
+
+    /**
+     * The y coordinate (measured up from the bottom) that the max value is drawn at
+     * @param height
+     * @param topPaddingEnabled
+     * @return
+     */
+    static float getMaxYCoordinate(int height, boolean topPaddingEnabled) {
+        return topPaddingEnabled ? height * 9 / 10 : height;
+    }
+
+    /**
+     * The y coordinate (measured up from the bottom) that the min value is drawn at
+     * @param height
+     * @param bottomPaddingEnabled
+     * @return
+     */
+    static float getMinYCoordinate(int height, boolean bottomPaddingEnabled) {
+        return bottomPaddingEnabled ? height / 10 : 0;
+    }
+
+    /**
+     * Calculate the y coordinate for a given value, based on the min and max values and coordinates
+     * @param value
+     * @param minY      - value drawn at minYCoord
+     * @param maxY      - value drawn at maxYCoord
+     * @param height    - height of the graph
+     * @param minYCoord
+     * @param maxYCoord
+     * @return the y coordinate, measured down from the top like a canvas
+     */
+    static float projectY(float value, float minY, float maxY, int height, float minYCoord, float maxYCoord) {
+        if (value == minY) {
+            return height - minYCoord;
+        } else if (value == maxY) {
+            return height - maxYCoord;
+        } else {
+            return height - (minYCoord + ((value - minY) * (maxYCoord - minYCoord) / (maxY - minY)));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.cantwellcode.cantwellgraphs;
+
+import android.os.Build;
+import android.os.Debug;
+import android.os.Trace;
+import android.view.View;
+
+/**
+ * Opt-in timing of how long a Graph or PieChart takes to lay out and draw each frame
+ *
+ * Set an instance on a chart (Graph.setRenderMetrics, PieChart.setRenderMetrics) to record the duration of
+ * each RenderStage into a histogram, and to call the listener at the end of every frame. Each stage is also a
+ * section in system traces (android.os.Trace, API 18+), so it shows up in systrace and Perfetto
+ * Charts without metrics skip all of this, so they pay nothing for it
+ *
+ * Recording happens on the UI thread, and so should reading the histograms, e.g. from the listener
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public final class RenderMetrics {
+
+    private static final boolean TRACE_AVAILABLE = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    private static final RenderStage[] STAGES = RenderStage.values();
+
+    private final DurationHistogram[] mHistograms;
+    private final long[] mStarts;           // when each running stage started
+    private final long[] mLastDurations;    // duration of each stage in the last frame
+
+    private long mFrameCount;
+    private boolean mCountAllocations;
+    private int mFrameAllocationStart;
+    private int mLastAllocationCount;
+    private int mMaxAllocationCount;
+
+    private OnFrameMetricsListener mListener;
+
+    public RenderMetrics() {
+        mHistograms = new DurationHistogram[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            mHistograms[i] = new DurationHistogram();
+        }
+        mStarts = new long[STAGES.length];
+        mLastDurations = new long[STAGES.length];
+        mLastAllocationCount = -1;
+        mMaxAllocationCount = -1;
+    }
+
+    /**
+     * Set a listener that is called on the UI thread at the end of every frame
+     * @param listener
+     */
+    public void setOnFrameMetricsListener(OnFrameMetricsListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Count the objects allocated on the UI thread in each frame
+     * This uses Debug.startAllocCounting, which counts for the whole process and slows allocation down,
+     * so only enable it while investigating. The counts are not available on every runtime
+     * @param isEnabled
+     */
+    @SuppressWarnings("deprecation")
+    public void enableAllocationCounting(boolean isEnabled) {
+        if (isEnabled == mCountAllocations) return;
+        mCountAllocations = isEnabled;
+        if (isEnabled) {
+            Debug.startAllocCounting();
+        } else {
+            Debug.stopAllocCounting();
+            mLastAllocationCount = -1;
+        }
+    }
+
+    /**
+     * @param stage
+     * @return every duration recorded for the stage, in nanoseconds
+     */
+    public DurationHistogram getHistogram(RenderStage stage) {
+        return mHistograms[stage.ordinal()];
+    }
+
+    /**
+     * The duration of the stage in the last frame, in nanoseconds
+     * ITEM_LAYOUT is the sum over the items, and ASYNC_LAYOUT is the last layout that was published
+     * @param stage
+     * @return 0 if the stage did not run in the last frame
+     */
+    public long getLastDuration(RenderStage stage) {
+        return mLastDurations[stage.ordinal()];
+    }
+
+    /**
+     * @return number of frames recorded
+     */
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return objects allocated on the UI thread in the last frame, or -1 if allocations are not counted
+     */
+    public int getLastAllocationCount() {
+        return mLastAllocationCount;
+    }
+
+    /**
+     * @return most objects allocated on the UI thread in a single frame, or -1 if allocations were never counted
+     */
+    public int getMaxAllocationCount() {
+        return mMaxAllocationCount;
+    }
+
+    /**
+     * Forget every frame that was recorded
+     */
+    public void reset() {
+        for (int i = 0; i < STAGES.length; i++) {
+            mHistograms[i].reset();
+            mLastDurations[i] = 0;
+        }
+        mFrameCount = 0;
+        mLastAllocationCount = mCountAllocations ? 0 : -1;
+        mMaxAllocationCount = -1;
+    }
+
+    /****************************************
+                    Recording
+     ****************************************/
+
+    /**
+     * Start a frame, and its FRAME stage
+     */
+    @SuppressWarnings("deprecation")
+    void beginFrame() {
+        for (int i = 0; i < STAGES.length; i++) {
+            if (STAGES[i] != RenderStage.ASYNC_LAYOUT) mLastDurations[i] = 0;
+        }
+        if (mCountAllocations) mFrameAllocationStart = Debug.getThreadAllocCount();
+        begin(RenderStage.FRAME);
+    }
+
+    /**
+     * End the FRAME stage, and call the listener
+     * @param chart
+     */
+    @SuppressWarnings("deprecation")
+    void endFrame(View chart) {
+        end(RenderStage.FRAME);
+        if (mCountAllocations) {
+            mLastAllocationCount = Debug.getThreadAllocCount() - mFrameAllocationStart;
+            if (mLastAllocationCount > mMaxAllocationCount) mMaxAllocationCount = mLastAllocationCount;
+        }
+        mFrameCount++;
+
+        if (mListener != null) {
+            mListener.onFrameMetrics(chart, this);
+        }
+    }
+
+    /**
+     * Start timing a stage on the UI thread. Stages may be nested, but a stage can't be nested in itself
+     * @param stage
+     */
+    void begin(RenderStage stage) {
+        beginSection(stage);
+        mStarts[stage.ordinal()] = System.nanoTime();
+    }
+
+    /**
+     * Stop timing a stage that was started with begin, and record its duration
+     * @param stage
+     */
+    void end(RenderStage stage) {
+        record(stage, System.nanoTime() - mStarts[stage.ordinal()]);
+        endSection();
+    }
+
+    /**
+     * Record a duration that was measured elsewhere, e.g. on another thread
+     * @param stage
+     * @param nanos
+     */
+    void record(RenderStage stage, long nanos) {
+        int i = stage.ordinal();
+        mHistograms[i].record(nanos);
+        if (stage == RenderStage.ASYNC_LAYOUT) {
+            mLastDurations[i] = nanos;
+        } else {
+            mLastDurations[i] += nanos;
+        }
+    }
+
+    /**
+     * Start a section in system traces, on the current thread. Safe to call from any thread
+     * @param stage
+     */
+    static void beginSection(RenderStage stage) {
+        if (TRACE_AVAILABLE) Trace.beginSection(stage.traceName);
+    }
+
+    /**
+     * End the section that was started last on the current thread
+     */
+    static void endSection() {
+        if (TRACE_AVAILABLE) Trace.endSection();
+    }
+
+    /**
+     * Called on the UI thread at the end of every frame of a chart with metrics
+     */
+    public interface OnFrameMetricsListener {
+        void onFrameMetrics(View chart, RenderMetrics metrics);
+    }
+}
@@ -0,0 +1,22 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.util.Locale;
+
+/**
+ * The stages of drawing a chart that RenderMetrics measures
+ *
+ * FRAME        - the whole onDraw call
+ * BOUNDS       - finding the y range and label width of a Graph, or the slices of a PieChart
+ * ITEM_LAYOUT  - updating a single graph item on the UI thread or the parallel executor, e.g. building a line's path
+ * ASYNC_LAYOUT - building the items of an asynchronous layout on the layout executor (see Graph.setLayoutExecutor)
+ * DRAW         - drawing the background, items, labels and highlights
+ * LABELS       - drawing the labels, which is part of DRAW
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public enum RenderStage {
+    FRAME, BOUNDS, ITEM_LAYOUT, ASYNC_LAYOUT, DRAW, LABELS;
+
+    /* Name of the section in system traces */
+    final String traceName = "cantwellgraphs:" + name().toLowerCase(Locale.US);
+}
@@ -0,0 +1,52 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * Values that a LineItem can render from, without copying them into a FloatSeries
+ *
+ * If the source has x values, they must be ascending. Otherwise, the x value of each value is its index
+ * A LineItem only reads the range of values that is visible, in bulk, so a source does not need to hold
+ * all of its values in memory. The built in sources are:
+ *   FloatSeries         - values in memory (it can wrap existing arrays without copying them)
+ *   MappedSeriesSource  - a memory mapped series file
+ *   PagedSeriesSource   - a series file read in pages, with an LRU cache of the recently used pages
+ * A LineItem may read the source from a layout thread (see Graph.setLayoutExecutor), so sources
+ * other than FloatSeries must not change once they are given to a LineItem
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public interface SeriesDataSource {
+
+    int size();
+
+    float get(int index);
+
+    /**
+     * Returns the x value at the index, or the index itself if the source does not have x values
+     */
+    float getX(int index);
+
+    boolean hasXValues();
+
+    /**
+     * Copy count values, starting at the index start, into the buffer
+     */
+    void getValues(int start, int count, float[] buffer, int offset);
+
+    /**
+     * Copy count x values (or indices, if the source does not have x values), starting at the index start,
+     * into the buffer
+     */
+    void getXValues(int start, int count, float[] buffer, int offset);
+
+    /**
+     * The minimum value between start (inclusive) and end (exclusive)
+     * @return the minimum, or NaN if the range is empty
+     */
+    float getMin(int start, int end);
+
+    /**
+     * The maximum value between start (inclusive) and end (exclusive)
+     * @return the maximum, or NaN if the range is empty
+     */
+    float getMax(int start, int end);
+}
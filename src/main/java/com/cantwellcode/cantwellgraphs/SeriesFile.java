@@ -0,0 +1,295 @@
+package com.cantwellcode.cantwellgraphs;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Compact binary file format for a series, that can be memory mapped and rendered without parsing
+ *
+ * Layout (little endian, every section starts on an 8 byte boundary):
+ *   header  - magic, version, flags, count, chunk size, chunk count, x origin (HEADER_SIZE bytes)
+ *   x       - optional x column, as floats, doubles, or long timestamps
+ *   values  - value column, as floats or doubles
+ *   footer  - min and max value (as floats) of every chunk of CHUNK_SIZE values
+ *
+ * Timestamps are converted to x values relative to the x origin (the first timestamp),
+ * so that they keep their precision as floats
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public final class SeriesFile {
+
+    static final int MAGIC = 0x46534743;    // "CGSF" in little endian
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int CHUNK_SIZE = 4096;
+
+    static final int FLAG_X_FLOAT = 1;
+    static final int FLAG_X_DOUBLE = 1 << 1;
+    static final int FLAG_X_TIMESTAMP = 1 << 2;
+    static final int FLAG_VALUES_DOUBLE = 1 << 3;
+
+    private SeriesFile() {}
+
+    /**
+     * Write the values (and x values, if the source has them) as float columns
+     * @param file
+     * @param source
+     * @throws IOException
+     */
+    public static void write(File file, SeriesDataSource source) throws IOException {
+        int count = source.size();
+        int flags = source.hasXValues() ? FLAG_X_FLOAT : 0;
+
+        Output out = new Output(file);
+        try {
+            out.writeHeader(flags, count, 0);
+            if (source.hasXValues()) {
+                for (int i = 0; i < count; i++) {
+                    out.putFloat(source.getX(i));
+                }
+                out.align();
+            }
+            for (int i = 0; i < count; i++) {
+                out.putFloat(source.get(i));
+            }
+            out.align();
+
+            /* Footer */
+            for (int start = 0; start < count; start += CHUNK_SIZE) {
+                int end = Math.min(start + CHUNK_SIZE, count);
+                float min = source.get(start);
+                float max = min;
+                for (int i = start + 1; i < end; i++) {
+                    float value = source.get(i);
+                    if (value < min) min = value;
+                    if (value > max) max = value;
+                }
+                out.putFloat(min);
+                out.putFloat(max);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Write timestamped values, with the timestamps as longs and the values as doubles
+     * @param file
+     * @param timestamps - ascending timestamps, e.g. in milliseconds
+     * @param values     - must be the same length as timestamps
+     * @throws IOException
+     */
+    public static void write(File file, long[] timestamps, double[] values) throws IOException {
+        if (timestamps.length != values.length) {
+            throw new IllegalArgumentException("timestamps and values must be the same length");
+        }
+
+        int count = values.length;
+        long origin = count > 0 ? timestamps[0] : 0;
+
+        Output out = new Output(file);
+        try {
+            out.writeHeader(FLAG_X_TIMESTAMP | FLAG_VALUES_DOUBLE, count, origin);
+            for (int i = 0; i < count; i++) {
+                out.putLong(timestamps[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.putDouble(values[i]);
+            }
+
+            /* Footer, with the min and max as they are read back, as floats */
+            for (int start = 0; start < count; start += CHUNK_SIZE) {
+                int end = Math.min(start + CHUNK_SIZE, count);
+                float min = (float) values[start];
+                float max = min;
+                for (int i = start + 1; i < end; i++) {
+                    float value = (float) values[i];
+                    if (value < min) min = value;
+                    if (value > max) max = value;
+                }
+                out.putFloat(min);
+                out.putFloat(max);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Memory map a series file. The values stay in the file, and are not copied onto the Java heap
+     * @param file
+     * @return
+     * @throws IOException if the file is not a series file
+     */
+    public static MappedSeriesSource open(File file) throws IOException {
+        return new MappedSeriesSource(file);
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    static int getChunkCount(int count) {
+        return (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * Size of a column, padded so that the next section starts on an 8 byte boundary
+     */
+    static long getColumnSize(int count, int bytesPerValue) {
+        long size = (long) count * bytesPerValue;
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * The header of a series file, and where each section of the file starts
+     */
+    static final class Header {
+        int flags;
+        int count;
+        int chunkSize;
+        int chunkCount;
+        long xOrigin;
+        int xBytes;             // bytes per x value, or 0 if there is no x column
+        long xOffset;
+        int valueBytes;         // bytes per value
+        long valuesOffset;
+        long footerOffset;
+
+        boolean hasX() {
+            return xBytes != 0;
+        }
+
+        boolean hasTimestamps() {
+            return (flags & FLAG_X_TIMESTAMP) != 0;
+        }
+
+        boolean hasDoubleX() {
+            return (flags & FLAG_X_DOUBLE) != 0;
+        }
+
+        /**
+         * Read and validate the header
+         * @param buffer - little endian buffer that starts with the header
+         * @param length - length of the file
+         * @param file   - used in error messages
+         */
+        static Header read(ByteBuffer buffer, long length, File file) throws IOException {
+            if (length < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a series file: " + file);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported series file version: " + buffer.getInt(4));
+            }
+
+            Header header = new Header();
+            header.flags = buffer.getInt(8);
+            header.count = buffer.getInt(12);
+            header.chunkSize = buffer.getInt(16);
+            header.chunkCount = buffer.getInt(20);
+            header.xOrigin = buffer.getLong(24);
+            if (header.count < 0 || header.chunkSize <= 0
+                    || header.chunkCount != (header.count + header.chunkSize - 1) / header.chunkSize) {
+                throw new IOException("Corrupt series file header: " + file);
+            }
+
+            if ((header.flags & FLAG_X_FLOAT) != 0) {
+                header.xBytes = 4;
+            } else if ((header.flags & (FLAG_X_DOUBLE | FLAG_X_TIMESTAMP)) != 0) {
+                header.xBytes = 8;
+            }
+            header.valueBytes = (header.flags & FLAG_VALUES_DOUBLE) != 0 ? 8 : 4;
+
+            header.xOffset = HEADER_SIZE;
+            header.valuesOffset = header.xOffset + (header.hasX() ? getColumnSize(header.count, header.xBytes) : 0);
+            header.footerOffset = header.valuesOffset + getColumnSize(header.count, header.valueBytes);
+            if (header.footerOffset + header.chunkCount * 8L > length) {
+                throw new IOException("Series file is truncated: " + file);
+            }
+            return header;
+        }
+    }
+
+    /**
+     * Writes little endian primitives through a small reusable buffer
+     */
+    private static final class Output {
+
+        private final OutputStream mStream;
+        private final ByteBuffer mBuffer;
+        private long mPosition;
+
+        Output(File file) throws IOException {
+            mStream = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+            mBuffer = ByteBuffer.allocate(1 << 13).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void writeHeader(int flags, int count, long xOrigin) throws IOException {
+            putInt(MAGIC);
+            putInt(VERSION);
+            putInt(flags);
+            putInt(count);
+            putInt(CHUNK_SIZE);
+            putInt(getChunkCount(count));
+            putLong(xOrigin);
+        }
+
+        void putInt(int value) throws IOException {
+            ensureSpace(4);
+            mBuffer.putInt(value);
+            mPosition += 4;
+        }
+
+        void putLong(long value) throws IOException {
+            ensureSpace(8);
+            mBuffer.putLong(value);
+            mPosition += 8;
+        }
+
+        void putFloat(float value) throws IOException {
+            ensureSpace(4);
+            mBuffer.putFloat(value);
+            mPosition += 4;
+        }
+
+        void putDouble(double value) throws IOException {
+            ensureSpace(8);
+            mBuffer.putDouble(value);
+            mPosition += 8;
+        }
+
+        /**
+         * Pad with zeros to the next 8 byte boundary
+         */
+        void align() throws IOException {
+            while ((mPosition & 7) != 0) {
+                ensureSpace(1);
+                mBuffer.put((byte) 0);
+                mPosition++;
+            }
+        }
+
+        void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                mStream.close();
+            }
+        }
+
+        private void ensureSpace(int bytes) throws IOException {
+            if (mBuffer.remaining() < bytes) flush();
+        }
+
+        private void flush() throws IOException {
+            mStream.write(mBuffer.array(), 0, mBuffer.position());
+            mBuffer.clear();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * Searches by x value in any SeriesDataSource, using the fact that x values are ascending
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+final class SeriesSearch {
+
+    private SeriesSearch() {}
+
+    /**
+     * Returns the index of the value whose x value is closest to the given x value
+     * @return the index, or -1 if the source is empty
+     */
+    static int findNearestIndex(SeriesDataSource source, float x) {
+        if (source instanceof FloatSeries) {
+            return ((FloatSeries) source).findNearestIndex(x);
+        }
+
+        int size = source.size();
+        if (size == 0) return -1;
+
+        if (!source.hasXValues()) {
+            int index = Math.round(x);
+            return index < 0 ? 0 : (index >= size ? size - 1 : index);
+        }
+
+        int after = findFirstIndexAtOrAfter(source, x);
+        if (after == 0) return 0;
+        if (after == size) return size - 1;
+
+        int before = after - 1;
+        return x - source.getX(before) <= source.getX(after) - x ? before : after;
+    }
+
+    /**
+     * Binary search for the first index whose x value is not less than the given x value
+     * @return the index, or size() if every x value is less than x
+     */
+    static int findFirstIndexAtOrAfter(SeriesDataSource source, float x) {
+        if (source instanceof FloatSeries) {
+            return ((FloatSeries) source).findFirstIndexAtOrAfter(x);
+        }
+
+        int size = source.size();
+        if (!source.hasXValues()) {
+            int index = (int) Math.ceil(x);
+            return index < 0 ? 0 : (index > size ? size : index);
+        }
+
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (source.getX(mid) < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
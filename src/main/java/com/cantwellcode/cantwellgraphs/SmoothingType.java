@@ -0,0 +1,14 @@
+package com.cantwellcode.cantwellgraphs;
+
+/**
+ * How a smoothed LineItem curves between its points
+ *
+ * MIDPOINT    - quadratic curves through the midpoints between points, which never overshoots but lags behind peaks
+ * CATMULL_ROM - cubic curves through every point, which follows peaks but can overshoot around sharp changes
+ * MONOTONE    - cubic curves through every point that never overshoot, so peaks and flat runs stay where they are
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public enum SmoothingType {
+    MIDPOINT, CATMULL_ROM, MONOTONE
+}
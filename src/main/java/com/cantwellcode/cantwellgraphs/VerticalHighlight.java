@@ -99,6 +99,18 @@ public class VerticalHighlight {
         mGradientFillEndColor = endColor;
     }
 
+    /**
+     * Add the area drawn by the highlight (including its stroke) to the given rectangle,
+     * so that the graph only needs to redraw that area when the highlight moves
+     * @param bounds
+     */
+    void unionBounds(RectF bounds) {
+        if (mPoint == null) return;
+
+        float stroke = hasStroke() ? mStrokeWidth / 2 : 0;
+        bounds.union(mRect.left - stroke, mRect.top - stroke, mRect.right + stroke, mRect.bottom + stroke);
+    }
+
     /****************************************
                 Getters
      ****************************************/
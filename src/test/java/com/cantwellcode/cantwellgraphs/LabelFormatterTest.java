@@ -0,0 +1,80 @@
+package com.cantwellcode.cantwellgraphs;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The labels are written into reused char buffers instead of Strings, so they must still read like String.format
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public class LabelFormatterTest {
+
+    private final char[] mBuffer = new char[LabelFormatter.MAX_LENGTH];
+
+    @Test
+    public void formatOneDecimalMatchesStringFormat() {
+        float[] values = {0, -0f, 0.05f, 0.25f, 0.35f, -0.04f, 1.05f, 2.675f, 99.95f, -123.456f, 1e6f, 3.4e15f};
+        for (float value : values) {
+            assertFormat(String.format(Locale.US, "%.1f", value), LabelFormatter.formatOneDecimal(value, '.', mBuffer));
+        }
+    }
+
+    @Test
+    public void formatOneDecimalUsesTheSeparator() {
+        assertFormat("-12,5", LabelFormatter.formatOneDecimal(-12.5f, ',', mBuffer));
+    }
+
+    @Test
+    public void formatOneDecimalWritesSpecialValues() {
+        assertFormat("NaN", LabelFormatter.formatOneDecimal(Float.NaN, '.', mBuffer));
+        assertFormat("-Infinity", LabelFormatter.formatOneDecimal(Float.NEGATIVE_INFINITY, '.', mBuffer));
+    }
+
+    @Test
+    public void formatOneDecimalOverwritesTheLastValue() {
+        LabelFormatter.formatOneDecimal(1234.5f, '.', mBuffer);
+        assertFormat("7.0", LabelFormatter.formatOneDecimal(7, '.', mBuffer));
+    }
+
+    @Test
+    public void appendSpacesPadsTheValue() {
+        int length = LabelFormatter.formatOneDecimal(2, '.', mBuffer);
+        assertFormat("2.0   ", LabelFormatter.appendSpaces(mBuffer, length, 3));
+    }
+
+    @Test
+    public void formatDecimalsMatchesStringFormat() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            float value = (random.nextFloat() - 0.5f) * (float) Math.pow(10, random.nextInt(8));
+            int decimals = random.nextInt(AxisLayout.MAX_DECIMALS + 1);
+            String expected = String.format(Locale.US, "%." + decimals + "f", value);
+            assertFormat(expected, LabelFormatter.formatDecimals(value, decimals, '.', mBuffer));
+        }
+    }
+
+    @Test
+    public void formatDecimalsPadsTheFraction() {
+        assertFormat("-12,50", LabelFormatter.formatDecimals(-12.5f, 2, ',', mBuffer));
+        assertFormat("3.007", LabelFormatter.formatDecimals(3.007f, 3, '.', mBuffer));
+        assertFormat("42", LabelFormatter.formatDecimals(42, 0, '.', mBuffer));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void formatDecimalsRejectsTooManyDecimals() {
+        LabelFormatter.formatDecimals(1, LabelFormatter.MAX_DECIMALS + 1, '.', mBuffer);
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private void assertFormat(String expected, int length) {
+        assertEquals(expected, new String(mBuffer, 0, length));
+    }
+}
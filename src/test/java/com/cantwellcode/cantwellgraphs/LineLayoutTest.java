@@ -0,0 +1,113 @@
+package com.cantwellcode.cantwellgraphs;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A line is rebuilt into the same buffers every layout, and extending it must draw the same line as rebuilding it
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public class LineLayoutTest {
+
+    private static final float DELTA = 0;
+
+    @Test
+    public void rebuildReusesThePathArrays() {
+        FloatSeries series = createSeries(5000);
+        LineLayout layout = new LineLayout();
+        LineShape shape = createShape(series);
+        layout.build(shape);
+        float[] line = shape.line.getCoords();
+        float[] fill = shape.fill.getCoords();
+        int coordCount = shape.line.getCoordCount();
+
+        for (int i = 0; i < 3; i++) {
+            layout.build(shape);
+            assertSame(line, shape.line.getCoords());
+            assertSame(fill, shape.fill.getCoords());
+            assertEquals(coordCount, shape.line.getCoordCount());
+        }
+    }
+
+    @Test
+    public void rebuildReusesTheSmoothedPathArrays() {
+        FloatSeries series = createSeries(5000);
+        LineLayout layout = new LineLayout();
+        LineShape shape = createShape(series);
+        shape.smoothed = true;
+        shape.smoothingType = SmoothingType.MONOTONE;
+        layout.build(shape);
+        float[] line = shape.line.getCoords();
+
+        layout.build(shape);
+        assertSame(line, shape.line.getCoords());
+    }
+
+    @Test
+    public void extendMatchesRebuild() {
+        FloatSeries series = new FloatSeries();
+        series.setWindowSize(100);
+        for (int i = 0; i < 10; i++) {
+            series.add(i % 7);
+        }
+        LineLayout layout = new LineLayout();
+        LineShape shape = createShape(series);
+        layout.build(shape);
+
+        /* Until the window is full, so that the rebuilt line has the same points */
+        for (int round = 0; round < 22; round++) {
+            for (int i = 0; i < 4; i++) {
+                series.add((round * 3 + i) % 9);
+            }
+            assertTrue(layout.canExtend(shape, series));
+            layout.extend(shape, series);
+
+            LineShape rebuilt = createShape(series);
+            new LineLayout().build(rebuilt);
+            assertSamePath(rebuilt.line, shape.line);
+            assertSamePath(rebuilt.fill, shape.fill);
+        }
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private static FloatSeries createSeries(int size) {
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (float) Math.sin(i / 50.0) * 5 + 5;
+        }
+        return new FloatSeries(values);
+    }
+
+    private static LineShape createShape(FloatSeries series) {
+        LineShape shape = new LineShape();
+        shape.series = series;
+        shape.windowSize = series.getWindowSize();
+        shape.evictedCount = series.getEvictedCount();
+        shape.width = 900;
+        shape.height = 500;
+        shape.minY = 0;
+        shape.maxY = 10;
+        shape.labelWidth = 50;
+        shape.hasFill = true;
+        return shape;
+    }
+
+    private static void assertSamePath(PathBuffer expected, PathBuffer actual) {
+        assertEquals(expected.getVerbCount(), actual.getVerbCount());
+        for (int i = 0; i < expected.getVerbCount(); i++) {
+            assertEquals(expected.getVerb(i), actual.getVerb(i));
+        }
+        assertArrayEquals(Arrays.copyOf(expected.getCoords(), expected.getCoordCount()),
+                Arrays.copyOf(actual.getCoords(), actual.getCoordCount()), DELTA);
+    }
+}
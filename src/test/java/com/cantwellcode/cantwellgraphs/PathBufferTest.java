@@ -0,0 +1,88 @@
+package com.cantwellcode.cantwellgraphs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Path buffers are rewound and rebuilt on every layout, so they must keep their arrays
+ *
+ * Copyright (c) Cantwell Code 2015, All Rights Reserved
+ */
+public class PathBufferTest {
+
+    private static final float DELTA = 0;
+
+    @Test
+    public void rewindKeepsTheArrays() {
+        PathBuffer path = new PathBuffer();
+        addPoints(path, 100);
+        float[] coords = path.getCoords();
+
+        path.rewind();
+        assertTrue(path.isEmpty());
+        assertEquals(0, path.getCoordCount());
+
+        addPoints(path, 100);
+        assertSame(coords, path.getCoords());
+        assertEquals(200, path.getCoordCount());
+    }
+
+    @Test
+    public void ensureCapacityAvoidsGrowing() {
+        PathBuffer path = new PathBuffer();
+        path.ensureCapacity(1000, 2000);
+        float[] coords = path.getCoords();
+
+        addPoints(path, 1000);
+        assertSame(coords, path.getCoords());
+    }
+
+    @Test
+    public void appendCopiesTheEndOfTheSource() {
+        PathBuffer source = new PathBuffer();
+        addPoints(source, 10);
+        PathBuffer path = new PathBuffer();
+        path.moveTo(-1, -1);
+
+        path.append(source, 1, 2);
+        assertEquals(10, path.getVerbCount());
+        assertEquals(PathBuffer.MOVE, path.getVerb(0));
+        assertEquals(PathBuffer.LINE, path.getVerb(1));
+        assertEquals(1, path.getCoords()[2], DELTA);
+        assertEquals(9, path.getCoords()[19], DELTA);
+    }
+
+    @Test
+    public void setLastPointMovesTheEndPoint() {
+        PathBuffer path = new PathBuffer();
+        path.moveTo(0, 0);
+        path.lineTo(10, 10);
+        path.setLastPoint(20, -5);
+
+        float[] c = path.getCoords();
+        assertEquals(2, path.getVerbCount());
+        assertEquals(20, c[2], DELTA);
+        assertEquals(-5, c[3], DELTA);
+        assertEquals(20, path.getRight(), DELTA);
+        assertEquals(-5, path.getTop(), DELTA);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void setLastPointNeedsAPoint() {
+        new PathBuffer().setLastPoint(1, 1);
+    }
+
+    /****************************************
+                    Helpers
+     ****************************************/
+
+    private static void addPoints(PathBuffer path, int count) {
+        path.moveTo(0, 0);
+        for (int i = 1; i < count; i++) {
+            path.lineTo(i, i);
+        }
+    }
+}